@@ -0,0 +1,193 @@
+package ilya.mp.map;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Red-black tree map which keeps nodes in parallel arrays instead of node objects.
+ * Node is an index: links are in int arrays, colours are bits of a long array,
+ * keys and values are in object arrays. Slots of removed nodes are reused through a free list.
+ * Index 0 is the NIL sentinel, it is always black. Links and balancing are in {@link IndexedRedBlackTree},
+ * this class keeps the keys and searches them with the comparator.
+ */
+public class ArrayRedBlackTreeMap<K extends Comparable<K>, V> extends IndexedRedBlackTree<V>
+    implements Iterable<Map.Entry<K, V>> {
+    private Object[] keys;
+    private final Comparator<? super K> comparator;
+
+    public ArrayRedBlackTreeMap() {
+        this(DEFAULT_INITIAL_CAPACITY, null);
+    }
+
+    public ArrayRedBlackTreeMap(Comparator<? super K> comparator) {
+        this(DEFAULT_INITIAL_CAPACITY, comparator);
+    }
+
+    /**
+     * @param initialCapacity - number of nodes to allocate arrays for.
+     * @param comparator      - comparator of the keys, natural order if null.
+     */
+    public ArrayRedBlackTreeMap(int initialCapacity, Comparator<? super K> comparator) {
+        super(initialCapacity);
+        this.keys = new Object[initialCapacity + 1];
+        this.comparator = comparator;
+    }
+
+    /**
+     * Find node by specified key and return value.
+     *
+     * @return value if map contain given key, {@code null} otherwise.
+     */
+    public V get(K key) {
+        int node = getNode(key);
+        return node == NIL ? null : valueAt(node);
+    }
+
+    /**
+     * @return {@code true} if map contain given key, {@code false} otherwise.
+     */
+    public boolean containsKey(K key) {
+        return getNode(key) != NIL;
+    }
+
+    /**
+     * Adding new pair if map does not contain given key, otherwise update value.
+     */
+    public void put(K key, V value) {
+        checkNullKey(key);
+        int tail = root;
+        int last = NIL;
+        int cmp = 0;
+        while (tail != NIL) {
+            last = tail;
+            cmp = compare(key, keyAt(tail));
+            if (cmp < 0) {
+                tail = left[tail];
+            } else if (cmp > 0) {
+                tail = right[tail];
+            } else {
+                values[tail] = value;
+                return;
+            }
+        }
+        int fresh = allocate(value);
+        keys[fresh] = key;
+        link(fresh, last, cmp < 0);
+    }
+
+    /**
+     * Removing node by given key.
+     *
+     * @return value by key.
+     */
+    public V remove(K key) {
+        int node = getNode(key);
+        if (node == NIL) {
+            return null;
+        }
+        V oldValue = valueAt(node);
+        deleteNode(node);
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        super.clear();
+    }
+
+    public Comparator<? super K> getComparator() {
+        return comparator;
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new InorderIterator(root == NIL ? NIL : minimum(root));
+    }
+
+    private int getNode(K key) {
+        checkNullKey(key);
+        int node = root;
+        while (node != NIL) {
+            int cmp = compare(key, keyAt(node));
+            if (cmp < 0) {
+                node = left[node];
+            } else if (cmp > 0) {
+                node = right[node];
+            } else {
+                return node;
+            }
+        }
+        return NIL;
+    }
+
+    @Override
+    void growKeys(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    @Override
+    void releaseKey(int node) {
+        keys[node] = null;
+    }
+
+    @Override
+    boolean isLess(int a, int b) {
+        return compare(keyAt(a), keyAt(b)) < 0;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private K keyAt(int node) {
+        return (K) keys[node];
+    }
+
+    private int compare(K a, K b) {
+        return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+    }
+
+    private void checkNullKey(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null!");
+        }
+    }
+
+    private final class InorderIterator implements Iterator<Map.Entry<K, V>> {
+        private int next;
+        private int lastReturned = NIL;
+
+        InorderIterator(int first) {
+            this.next = first;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != NIL;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == NIL) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = successor(next);
+            return new AbstractMap.SimpleImmutableEntry<>(keyAt(lastReturned), valueAt(lastReturned));
+        }
+
+        /**
+         * Nodes are unlinked without moving keys between slots, so the next node stays valid.
+         */
+        @Override
+        public void remove() {
+            if (lastReturned == NIL) {
+                throw new IllegalStateException("Last returned element is null");
+            }
+            deleteNode(lastReturned);
+            lastReturned = NIL;
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package ilya.mp.map;
+
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Sorted map based on B+ tree, an alternative to RedBlackTreeMap for large maps.
+ * Every node holds up to fanOut - 1 keys in an array, so a lookup touches only
+ * log_fanOut(n) nodes. Entries are kept in leaves which are linked in key order,
+ * so iteration and range scans read leaves sequentially.
+ */
+public class BPlusTreeMap<K extends Comparable<K>, V> implements Iterable<Map.Entry<K, V>> {
+    private static final int DEFAULT_FAN_OUT = 64;
+    private static final int MIN_FAN_OUT = 3;
+
+    private final int maxKeys;
+    private final int minKeys;
+    private final Comparator<? super K> comparator;
+    private Node root;
+    private int size;
+
+    // results of the recursive put and remove
+    private Object splitKey;
+    private Object removedValue;
+
+    public BPlusTreeMap() {
+        this(DEFAULT_FAN_OUT, null);
+    }
+
+    public BPlusTreeMap(Comparator<? super K> comparator) {
+        this(DEFAULT_FAN_OUT, comparator);
+    }
+
+    /**
+     * @param fanOut     - max number of children of an inner node and max number of entries in a leaf plus one.
+     * @param comparator - comparator of the keys, natural order if null.
+     * @throws IllegalArgumentException if fanOut is less than 3.
+     */
+    public BPlusTreeMap(int fanOut, Comparator<? super K> comparator) {
+        if (fanOut < MIN_FAN_OUT) {
+            throw new IllegalArgumentException("Fan out must be at least " + MIN_FAN_OUT);
+        }
+        this.maxKeys = fanOut - 1;
+        this.minKeys = maxKeys / 2;
+        this.comparator = comparator;
+        this.root = new Leaf(maxKeys);
+    }
+
+    /**
+     * Find leaf by the key and return value.
+     *
+     * @return value if map contain given key, {@code null} otherwise.
+     */
+    @SuppressWarnings({"unchecked"})
+    public V get(K key) {
+        checkNullKey(key);
+        Leaf leaf = findLeaf(key);
+        int i = search(leaf, key);
+        return i >= 0 ? (V) leaf.values[i] : null;
+    }
+
+    /**
+     * @return {@code true} if map contain given key, {@code false} otherwise.
+     */
+    public boolean containsKey(K key) {
+        checkNullKey(key);
+        return search(findLeaf(key), key) >= 0;
+    }
+
+    /**
+     * Adding new pair if map does not contain given key, otherwise update value.
+     * Overflowed nodes are split in halves up to the root.
+     */
+    public void put(K key, V value) {
+        checkNullKey(key);
+        Node right = insert(root, key, value);
+        if (right != null) {
+            Inner newRoot = new Inner(maxKeys);
+            newRoot.keys[0] = splitKey;
+            newRoot.children[0] = root;
+            newRoot.children[1] = right;
+            newRoot.count = 1;
+            root = newRoot;
+        }
+        splitKey = null;
+    }
+
+    /**
+     * Removing entry by given key. Underflowed nodes borrow from or are merged with a sibling.
+     *
+     * @return value by key.
+     */
+    @SuppressWarnings({"unchecked"})
+    public V remove(K key) {
+        checkNullKey(key);
+        if (!delete(root, key)) {
+            return null;
+        }
+        if (root instanceof Inner && root.count == 0) {
+            root = ((Inner) root).children[0];
+        }
+        V value = (V) removedValue;
+        removedValue = null;
+        return value;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        root = new Leaf(maxKeys);
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Comparator<? super K> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Iterator over entries in key order. Removal through the iterator takes O(log n).
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        Node node = root;
+        while (node instanceof Inner) {
+            node = ((Inner) node).children[0];
+        }
+        return new LeafIterator((Leaf) node, 0, null);
+    }
+
+    /**
+     * Entries with keys from fromKey inclusive to toKey exclusive. The scan starts
+     * at the leaf of fromKey found in O(log n) and goes through linked leaves.
+     *
+     * @throws IllegalArgumentException if a key is null.
+     */
+    public Iterable<Map.Entry<K, V>> range(K fromKey, K toKey) {
+        checkNullKey(fromKey);
+        checkNullKey(toKey);
+        return () -> seek(fromKey, toKey);
+    }
+
+    private Node insert(Node node, K key, V value) {
+        int i = search(node, key);
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            if (i >= 0) {
+                leaf.values[i] = value;
+                return null;
+            }
+            leaf.insert(-i - 1, key, value);
+            size++;
+            return leaf.count > maxKeys ? splitLeaf(leaf) : null;
+        }
+        Inner inner = (Inner) node;
+        int child = i >= 0 ? i + 1 : -i - 1;
+        Node right = insert(inner.children[child], key, value);
+        if (right == null) {
+            return null;
+        }
+        inner.insert(child, splitKey, right);
+        return inner.count > maxKeys ? splitInner(inner) : null;
+    }
+
+    private Node splitLeaf(Leaf leaf) {
+        Leaf right = new Leaf(maxKeys);
+        int mid = leaf.count / 2;
+        right.count = leaf.count - mid;
+        System.arraycopy(leaf.keys, mid, right.keys, 0, right.count);
+        System.arraycopy(leaf.values, mid, right.values, 0, right.count);
+        clear(leaf.keys, mid, leaf.count);
+        clear(leaf.values, mid, leaf.count);
+        leaf.count = mid;
+
+        right.next = leaf.next;
+        if (right.next != null) {
+            right.next.prev = right;
+        }
+        right.prev = leaf;
+        leaf.next = right;
+        splitKey = right.keys[0];
+        return right;
+    }
+
+    private Node splitInner(Inner inner) {
+        Inner right = new Inner(maxKeys);
+        int mid = inner.count / 2;
+        splitKey = inner.keys[mid];
+        right.count = inner.count - mid - 1;
+        System.arraycopy(inner.keys, mid + 1, right.keys, 0, right.count);
+        System.arraycopy(inner.children, mid + 1, right.children, 0, right.count + 1);
+        clear(inner.keys, mid, inner.count);
+        clear(inner.children, mid + 1, inner.count + 1);
+        inner.count = mid;
+        return right;
+    }
+
+    /**
+     * @return {@code true} if the key was found and removed.
+     */
+    private boolean delete(Node node, K key) {
+        int i = search(node, key);
+        if (node instanceof Leaf) {
+            if (i < 0) {
+                return false;
+            }
+            Leaf leaf = (Leaf) node;
+            removedValue = leaf.values[i];
+            leaf.remove(i);
+            size--;
+            return true;
+        }
+        Inner inner = (Inner) node;
+        int child = i >= 0 ? i + 1 : -i - 1;
+        if (!delete(inner.children[child], key)) {
+            return false;
+        }
+        if (inner.children[child].count < minKeys) {
+            rebalance(inner, child);
+        }
+        return true;
+    }
+
+    /**
+     * Restore the child which has less than minKeys keys: borrow from a sibling
+     * which has spare keys, otherwise merge it with a sibling.
+     */
+    private void rebalance(Inner parent, int child) {
+        Node node = parent.children[child];
+        Node left = child > 0 ? parent.children[child - 1] : null;
+        Node right = child < parent.count ? parent.children[child + 1] : null;
+
+        if (left != null && left.count > minKeys) {
+            borrowFromLeft(parent, child, left, node);
+        } else if (right != null && right.count > minKeys) {
+            borrowFromRight(parent, child, node, right);
+        } else if (left != null) {
+            merge(parent, child - 1, left, node);
+        } else {
+            merge(parent, child, node, right);
+        }
+    }
+
+    private void borrowFromLeft(Inner parent, int child, Node left, Node node) {
+        if (node instanceof Leaf) {
+            Leaf from = (Leaf) left;
+            int last = from.count - 1;
+            ((Leaf) node).insert(0, from.keys[last], from.values[last]);
+            from.remove(last);
+            parent.keys[child - 1] = node.keys[0];
+        } else {
+            Inner from = (Inner) left;
+            Inner to = (Inner) node;
+            System.arraycopy(to.keys, 0, to.keys, 1, to.count);
+            System.arraycopy(to.children, 0, to.children, 1, to.count + 1);
+            to.keys[0] = parent.keys[child - 1];
+            to.children[0] = from.children[from.count];
+            to.count++;
+            parent.keys[child - 1] = from.keys[from.count - 1];
+            from.keys[from.count - 1] = null;
+            from.children[from.count] = null;
+            from.count--;
+        }
+    }
+
+    private void borrowFromRight(Inner parent, int child, Node node, Node right) {
+        if (node instanceof Leaf) {
+            Leaf from = (Leaf) right;
+            Leaf to = (Leaf) node;
+            to.insert(to.count, from.keys[0], from.values[0]);
+            from.remove(0);
+            parent.keys[child] = from.keys[0];
+        } else {
+            Inner from = (Inner) right;
+            Inner to = (Inner) node;
+            to.keys[to.count] = parent.keys[child];
+            to.children[to.count + 1] = from.children[0];
+            to.count++;
+            parent.keys[child] = from.keys[0];
+            System.arraycopy(from.keys, 1, from.keys, 0, from.count - 1);
+            System.arraycopy(from.children, 1, from.children, 0, from.count);
+            from.keys[from.count - 1] = null;
+            from.children[from.count] = null;
+            from.count--;
+        }
+    }
+
+    /**
+     * Move everything from the right node into the left one and remove the separator at index i.
+     */
+    private void merge(Inner parent, int i, Node left, Node right) {
+        if (left instanceof Leaf) {
+            Leaf to = (Leaf) left;
+            Leaf from = (Leaf) right;
+            System.arraycopy(from.keys, 0, to.keys, to.count, from.count);
+            System.arraycopy(from.values, 0, to.values, to.count, from.count);
+            to.count += from.count;
+            to.next = from.next;
+            if (to.next != null) {
+                to.next.prev = to;
+            }
+        } else {
+            Inner to = (Inner) left;
+            Inner from = (Inner) right;
+            to.keys[to.count] = parent.keys[i];
+            System.arraycopy(from.keys, 0, to.keys, to.count + 1, from.count);
+            System.arraycopy(from.children, 0, to.children, to.count + 1, from.count + 1);
+            to.count += from.count + 1;
+        }
+        parent.remove(i);
+    }
+
+    private Leaf findLeaf(K key) {
+        Node node = root;
+        while (node instanceof Inner) {
+            int i = search(node, key);
+            node = ((Inner) node).children[i >= 0 ? i + 1 : -i - 1];
+        }
+        return (Leaf) node;
+    }
+
+    /**
+     * @return iterator positioned at the first key not less than fromKey.
+     */
+    private LeafIterator seek(K fromKey, K toKey) {
+        Leaf leaf = findLeaf(fromKey);
+        int i = search(leaf, fromKey);
+        return new LeafIterator(leaf, i >= 0 ? i : -i - 1, toKey);
+    }
+
+    /**
+     * Binary search of the key among the keys of the node.
+     *
+     * @return index of the key if it is found, otherwise (-(insertion point) - 1).
+     */
+    @SuppressWarnings({"unchecked"})
+    private int search(Node node, K key) {
+        int lo = 0;
+        int hi = node.count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare((K) node.keys[mid], key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    private int compare(K a, K b) {
+        return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+    }
+
+    private void checkNullKey(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null!");
+        }
+    }
+
+    private static void clear(Object[] array, int from, int to) {
+        for (int i = from; i < to; i++) {
+            array[i] = null;
+        }
+    }
+
+    /**
+     * WARNING! USED ONLY FOR TEST PURPOSE.
+     *
+     * @return {@code true} if all leaves are on the same depth, nodes except the root are at least half full,
+     * keys are sorted within nodes and between separators, and leaf links follow the key order.
+     */
+    boolean isValidTree() {
+        return checkNode(root, null, null, true) >= 0 && checkLeafLinks();
+    }
+
+    // depth of leaves or -1 if the subtree is not valid
+    @SuppressWarnings({"unchecked"})
+    private int checkNode(Node node, K lo, K hi, boolean isRoot) {
+        if (node.count > maxKeys || (!isRoot && node.count < minKeys)) {
+            return -1;
+        }
+        for (int i = 0; i < node.count; i++) {
+            K key = (K) node.keys[i];
+            if ((i > 0 && compare((K) node.keys[i - 1], key) >= 0)
+                || (lo != null && compare(key, lo) < 0) || (hi != null && compare(key, hi) >= 0)) {
+                return -1;
+            }
+        }
+        if (node instanceof Leaf) {
+            return 0;
+        }
+        Inner inner = (Inner) node;
+        int depth = -1;
+        for (int i = 0; i <= inner.count; i++) {
+            K childLo = i == 0 ? lo : (K) inner.keys[i - 1];
+            K childHi = i == inner.count ? hi : (K) inner.keys[i];
+            int childDepth = checkNode(inner.children[i], childLo, childHi, false);
+            if (childDepth < 0 || (depth >= 0 && depth != childDepth)) {
+                return -1;
+            }
+            depth = childDepth;
+        }
+        return depth + 1;
+    }
+
+    private boolean checkLeafLinks() {
+        int count = 0;
+        Leaf previous = null;
+        for (Iterator<Map.Entry<K, V>> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+            count++;
+        }
+        Node node = root;
+        while (node instanceof Inner) {
+            node = ((Inner) node).children[0];
+        }
+        for (Leaf leaf = (Leaf) node; leaf != null; leaf = leaf.next) {
+            if (leaf.prev != previous) {
+                return false;
+            }
+            previous = leaf;
+        }
+        return count == size;
+    }
+
+    private abstract static class Node {
+        // one extra slot for the key which overflows the node before split
+        final Object[] keys;
+        int count;
+
+        Node(int maxKeys) {
+            this.keys = new Object[maxKeys + 1];
+        }
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] values;
+        Leaf next;
+        Leaf prev;
+
+        Leaf(int maxKeys) {
+            super(maxKeys);
+            this.values = new Object[maxKeys + 1];
+        }
+
+        void insert(int i, Object key, Object value) {
+            System.arraycopy(keys, i, keys, i + 1, count - i);
+            System.arraycopy(values, i, values, i + 1, count - i);
+            keys[i] = key;
+            values[i] = value;
+            count++;
+        }
+
+        void remove(int i) {
+            System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+            System.arraycopy(values, i + 1, values, i, count - i - 1);
+            count--;
+            keys[count] = null;
+            values[count] = null;
+        }
+    }
+
+    /**
+     * Child i holds keys less than keys[i], child i + 1 holds keys not less than keys[i].
+     */
+    private static final class Inner extends Node {
+        final Node[] children;
+
+        Inner(int maxKeys) {
+            super(maxKeys);
+            this.children = new Node[maxKeys + 2];
+        }
+
+        /**
+         * Insert the separator at index i and the node right of it.
+         */
+        void insert(int i, Object key, Node right) {
+            System.arraycopy(keys, i, keys, i + 1, count - i);
+            System.arraycopy(children, i + 1, children, i + 2, count - i);
+            keys[i] = key;
+            children[i + 1] = right;
+            count++;
+        }
+
+        /**
+         * Remove the separator at index i and the node right of it.
+         */
+        void remove(int i) {
+            System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+            System.arraycopy(children, i + 2, children, i + 1, count - i - 1);
+            count--;
+            keys[count] = null;
+            children[count + 1] = null;
+        }
+    }
+
+    private final class LeafIterator implements Iterator<Map.Entry<K, V>> {
+        private final K toKey;
+        private Leaf leaf;
+        private int index;
+        private K lastReturned;
+
+        LeafIterator(Leaf leaf, int index, K toKey) {
+            this.leaf = leaf;
+            this.index = index;
+            this.toKey = toKey;
+            skipExhaustedLeaves();
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked"})
+        public boolean hasNext() {
+            return leaf != null && (toKey == null || compare((K) leaf.keys[index], toKey) < 0);
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked"})
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = (K) leaf.keys[index];
+            Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(lastReturned, (V) leaf.values[index]);
+            index++;
+            skipExhaustedLeaves();
+            return entry;
+        }
+
+        /**
+         * Remove the last returned key from the map and find the position of the next key again,
+         * since removal can move entries between leaves.
+         */
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException("Last returned element is null");
+            }
+            BPlusTreeMap.this.remove(lastReturned);
+            leaf = findLeaf(lastReturned);
+            int i = search(leaf, lastReturned);
+            index = i >= 0 ? i : -i - 1;
+            lastReturned = null;
+            skipExhaustedLeaves();
+        }
+
+        private void skipExhaustedLeaves() {
+            while (leaf != null && index >= leaf.count) {
+                leaf = leaf.next;
+                index = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package ilya.mp.map;
+
+import java.util.Arrays;
+
+/**
+ * Red-black tree which keeps nodes in parallel arrays instead of node objects, shared by
+ * ArrayRedBlackTreeMap and LongTreeMap. Node is an index: links are in int arrays, colours are bits
+ * of a long array and values are in an object array. Slots of removed nodes are reused through a free list.
+ * Index 0 is the NIL sentinel, it is always black.
+ *
+ * Subclasses store the keys in an array of their own type and search the tree with their own comparison,
+ * here only the links are changed, so balancing does not depend on the type of the keys.
+ */
+abstract class IndexedRedBlackTree<V> {
+    static final int NIL = 0;
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    int[] left;
+    int[] right;
+    int[] parent;
+    long[] red;
+    Object[] values;
+    int root = NIL;
+    int size;
+    // first slot which has never been used
+    int used = 1;
+    // head of the list of removed slots linked through left
+    int free = NIL;
+
+    /**
+     * @param initialCapacity - number of nodes to allocate arrays for.
+     */
+    IndexedRedBlackTree(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity cannot be negative!");
+        }
+        int capacity = initialCapacity + 1;
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.parent = new int[capacity];
+        this.red = new long[(capacity + Long.SIZE - 1) / Long.SIZE];
+        this.values = new Object[capacity];
+    }
+
+    /**
+     * Resize the key array to the capacity, called when the other arrays grow.
+     */
+    abstract void growKeys(int capacity);
+
+    /**
+     * Drop the key of a removed node, so that it can be garbage collected.
+     */
+    abstract void releaseKey(int node);
+
+    /**
+     * @return {@code true} if the key of node a is less than the key of node b.
+     */
+    abstract boolean isLess(int a, int b);
+
+    /**
+     * Removes all of the mappings from this map, allocated arrays are kept.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        root = NIL;
+        size = 0;
+        used = 1;
+        free = NIL;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Take slot from the free list or the first unused slot, growing arrays if needed.
+     * New node is red, its key must be stored by the caller.
+     */
+    int allocate(V value) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = left[node];
+        } else {
+            if (used == left.length) {
+                grow();
+            }
+            node = used++;
+        }
+        values[node] = value;
+        left[node] = NIL;
+        right[node] = NIL;
+        parent[node] = NIL;
+        setColor(node, true);
+        return node;
+    }
+
+    /**
+     * Link the fresh node as a child of the last node on the search path and rebalance.
+     *
+     * @param last   - parent of the new node, NIL if the tree is empty.
+     * @param asLeft - {@code true} if the new node is the left child of last.
+     */
+    void link(int fresh, int last, boolean asLeft) {
+        parent[fresh] = last;
+        if (last == NIL) {
+            root = fresh;
+        } else if (asLeft) {
+            left[last] = fresh;
+        } else {
+            right[last] = fresh;
+        }
+        balanceAfterPut(fresh);
+        size++;
+    }
+
+    /**
+     * Unlink the node, the successor takes its place if the node has two children.
+     * Parent of NIL is used temporarily as the parent of the moved up child.
+     */
+    void deleteNode(int node) {
+        int moved = node;
+        boolean movedWasRed = isRed(moved);
+        int replace;
+        if (left[node] == NIL) {
+            replace = right[node];
+            transplant(node, replace);
+        } else if (right[node] == NIL) {
+            replace = left[node];
+            transplant(node, replace);
+        } else {
+            moved = minimum(right[node]);
+            movedWasRed = isRed(moved);
+            replace = right[moved];
+            if (parent[moved] == node) {
+                parent[replace] = moved;
+            } else {
+                transplant(moved, right[moved]);
+                right[moved] = right[node];
+                parent[right[moved]] = moved;
+            }
+            transplant(node, moved);
+            left[moved] = left[node];
+            parent[left[moved]] = moved;
+            setColor(moved, isRed(node));
+        }
+        if (!movedWasRed) {
+            balanceAfterRemove(replace);
+        }
+        parent[NIL] = NIL;
+        release(node);
+        size--;
+    }
+
+    int minimum(int node) {
+        while (left[node] != NIL) {
+            node = left[node];
+        }
+        return node;
+    }
+
+    int maximum(int node) {
+        while (right[node] != NIL) {
+            node = right[node];
+        }
+        return node;
+    }
+
+    int successor(int node) {
+        if (right[node] != NIL) {
+            return minimum(right[node]);
+        }
+        int father = parent[node];
+        while (father != NIL && node == right[father]) {
+            node = father;
+            father = parent[father];
+        }
+        return father;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    V valueAt(int node) {
+        return (V) values[node];
+    }
+
+    private void release(int node) {
+        releaseKey(node);
+        values[node] = null;
+        left[node] = free;
+        right[node] = NIL;
+        parent[node] = NIL;
+        free = node;
+    }
+
+    private void grow() {
+        int capacity = Math.max(left.length * 2, DEFAULT_INITIAL_CAPACITY);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        red = Arrays.copyOf(red, (capacity + Long.SIZE - 1) / Long.SIZE);
+        values = Arrays.copyOf(values, capacity);
+        growKeys(capacity);
+    }
+
+    private void balanceAfterPut(int node) {
+        while (isRed(parent[node])) {
+            int father = parent[node];
+            int grandFather = parent[father];
+            if (father == left[grandFather]) {
+                int uncle = right[grandFather];
+                if (isRed(uncle)) {
+                    setColor(father, false);
+                    setColor(uncle, false);
+                    setColor(grandFather, true);
+                    node = grandFather;
+                } else {
+                    if (node == right[father]) {
+                        node = father;
+                        leftRotate(node);
+                        father = parent[node];
+                    }
+                    setColor(father, false);
+                    setColor(grandFather, true);
+                    rightRotate(grandFather);
+                }
+            } else {
+                int uncle = left[grandFather];
+                if (isRed(uncle)) {
+                    setColor(father, false);
+                    setColor(uncle, false);
+                    setColor(grandFather, true);
+                    node = grandFather;
+                } else {
+                    if (node == left[father]) {
+                        node = father;
+                        rightRotate(node);
+                        father = parent[node];
+                    }
+                    setColor(father, false);
+                    setColor(grandFather, true);
+                    leftRotate(grandFather);
+                }
+            }
+        }
+        setColor(root, false);
+    }
+
+    private void balanceAfterRemove(int node) {
+        while (node != root && !isRed(node)) {
+            int father = parent[node];
+            if (node == left[father]) {
+                int bro = right[father];
+                if (isRed(bro)) {
+                    setColor(bro, false);
+                    setColor(father, true);
+                    leftRotate(father);
+                    bro = right[father];
+                }
+                if (!isRed(left[bro]) && !isRed(right[bro])) {
+                    setColor(bro, true);
+                    node = father;
+                } else {
+                    if (!isRed(right[bro])) {
+                        setColor(left[bro], false);
+                        setColor(bro, true);
+                        rightRotate(bro);
+                        bro = right[father];
+                    }
+                    setColor(bro, isRed(father));
+                    setColor(father, false);
+                    setColor(right[bro], false);
+                    leftRotate(father);
+                    node = root;
+                }
+            } else {
+                int bro = left[father];
+                if (isRed(bro)) {
+                    setColor(bro, false);
+                    setColor(father, true);
+                    rightRotate(father);
+                    bro = left[father];
+                }
+                if (!isRed(left[bro]) && !isRed(right[bro])) {
+                    setColor(bro, true);
+                    node = father;
+                } else {
+                    if (!isRed(left[bro])) {
+                        setColor(right[bro], false);
+                        setColor(bro, true);
+                        leftRotate(bro);
+                        bro = left[father];
+                    }
+                    setColor(bro, isRed(father));
+                    setColor(father, false);
+                    setColor(left[bro], false);
+                    rightRotate(father);
+                    node = root;
+                }
+            }
+        }
+        setColor(node, false);
+    }
+
+    /**
+     * Put subtree v in place of subtree u.
+     */
+    private void transplant(int u, int v) {
+        int father = parent[u];
+        if (father == NIL) {
+            root = v;
+        } else if (u == left[father]) {
+            left[father] = v;
+        } else {
+            right[father] = v;
+        }
+        parent[v] = father;
+    }
+
+    private void leftRotate(int node) {
+        int pivot = right[node];
+        right[node] = left[pivot];
+        if (left[pivot] != NIL) {
+            parent[left[pivot]] = node;
+        }
+        transplant(node, pivot);
+        left[pivot] = node;
+        parent[node] = pivot;
+    }
+
+    private void rightRotate(int node) {
+        int pivot = left[node];
+        left[node] = right[pivot];
+        if (right[pivot] != NIL) {
+            parent[right[pivot]] = node;
+        }
+        transplant(node, pivot);
+        right[pivot] = node;
+        parent[node] = pivot;
+    }
+
+    private boolean isRed(int node) {
+        return (red[node >>> 6] & (1L << node)) != 0;
+    }
+
+    private void setColor(int node, boolean isRed) {
+        if (node == NIL) {
+            return;
+        }
+        if (isRed) {
+            red[node >>> 6] |= 1L << node;
+        } else {
+            red[node >>> 6] &= ~(1L << node);
+        }
+    }
+
+    /**
+     * WARNING! USED ONLY FOR TEST PURPOSE.
+     *
+     * @return {@code true} if the root is black, no red node has a red child, all paths have
+     * the same number of black nodes, parent links are consistent and child keys are in order.
+     */
+    boolean isValidRedBlackTree() {
+        return !isRed(root) && parent[root] == NIL && blackHeight(root) >= 0;
+    }
+
+    // -1 if the subtree is not valid
+    private int blackHeight(int node) {
+        if (node == NIL) {
+            return 0;
+        }
+        if (isRed(node) && (isRed(left[node]) || isRed(right[node]))) {
+            return -1;
+        }
+        if ((left[node] != NIL && (parent[left[node]] != node || !isLess(left[node], node)))
+            || (right[node] != NIL && (parent[right[node]] != node || !isLess(node, right[node])))) {
+            return -1;
+        }
+        int leftHeight = blackHeight(left[node]);
+        int rightHeight = blackHeight(right[node]);
+        if (leftHeight < 0 || leftHeight != rightHeight) {
+            return -1;
+        }
+        return leftHeight + (isRed(node) ? 0 : 1);
+    }
+}
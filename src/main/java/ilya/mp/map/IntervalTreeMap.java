@@ -0,0 +1,214 @@
+package ilya.mp.map;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Map of half-open intervals [start, end) to values based on RedBlackTreeMap.
+ * The key is the pair (start, end): the map holds at most one value per interval,
+ * putting an interval equal to one already in the map replaces its value.
+ * Store a collection as the value to keep several values for the same interval.
+ *
+ * Intervals are ordered by start, then by end. The tree is augmented by the max end
+ * of each subtree, so a query skips every subtree whose intervals all end before
+ * the queried point and stops at the first start after it. Every reported interval can cost
+ * a descent of O(log n) into subtrees which are not skipped, so a query reporting k intervals
+ * takes O(min(n, (k + 1) log n)). O(log n + k) would need a centered interval tree
+ * or a priority search tree.
+ *
+ * Results are delivered to a consumer in order of interval starts, without collecting them first.
+ */
+public class IntervalTreeMap<P extends Comparable<P>, V> implements Iterable<IntervalTreeMap.Interval<P, V>> {
+    private final RedBlackTreeMap<Interval<P, V>, Interval<P, V>> tree;
+
+    public IntervalTreeMap() {
+        // aggregate of a subtree is its interval with the max end, null for empty subtree
+        this.tree = new RedBlackTreeMap<>(Monoid.of(null, IntervalTreeMap::maxEnd));
+    }
+
+    /**
+     * Adding new interval if map does not contain it, otherwise update value.
+     * Intervals with equal start and end are the same key, so the previous value is replaced, not kept.
+     *
+     * @throws IllegalArgumentException if a bound is null or the interval is empty.
+     */
+    public void put(P start, P end, V value) {
+        Interval<P, V> interval = new Interval<>(start, end, value);
+        tree.put(interval, interval);
+    }
+
+    /**
+     * @return value of the interval, {@code null} if map does not contain it.
+     */
+    public V get(P start, P end) {
+        Interval<P, V> interval = tree.get(new Interval<>(start, end, null));
+        return interval == null ? null : interval.value;
+    }
+
+    /**
+     * @return value of the removed interval.
+     */
+    public V remove(P start, P end) {
+        Interval<P, V> interval = tree.remove(new Interval<>(start, end, null));
+        return interval == null ? null : interval.value;
+    }
+
+    /**
+     * Stabbing query: pass to the consumer all intervals containing the point, that is start <= point < end.
+     * Takes O(min(n, (k + 1) log n)) for k reported intervals.
+     *
+     * @throws IllegalArgumentException if the point is null.
+     */
+    public void stab(P point, Consumer<? super Interval<P, V>> consumer) {
+        checkNullPoint(point);
+        overlapping(tree.getRoot(), point, point, true, consumer);
+    }
+
+    /**
+     * @return intervals containing the point in order of starts.
+     */
+    public List<Interval<P, V>> stab(P point) {
+        List<Interval<P, V>> result = new ArrayList<>();
+        stab(point, result::add);
+        return result;
+    }
+
+    /**
+     * Overlap query: pass to the consumer all intervals which have common points with [from, to),
+     * that is start < to and end > from. Takes O(min(n, (k + 1) log n)) for k reported intervals.
+     *
+     * @throws IllegalArgumentException if a bound is null.
+     */
+    public void overlapping(P from, P to, Consumer<? super Interval<P, V>> consumer) {
+        checkNullPoint(from);
+        checkNullPoint(to);
+        overlapping(tree.getRoot(), from, to, false, consumer);
+    }
+
+    /**
+     * @return intervals overlapping [from, to) in order of starts.
+     */
+    public List<Interval<P, V>> overlapping(P from, P to) {
+        List<Interval<P, V>> result = new ArrayList<>();
+        overlapping(from, to, result::add);
+        return result;
+    }
+
+    public void clear() {
+        tree.clear();
+    }
+
+    public boolean isEmpty() {
+        return tree.isEmpty();
+    }
+
+    public int getSize() {
+        return tree.getSize();
+    }
+
+    /**
+     * Iterator over intervals in order of starts, removal is supported.
+     */
+    @Override
+    public Iterator<Interval<P, V>> iterator() {
+        Iterator<RedBlackTreeMap.Node<Interval<P, V>, Interval<P, V>>> nodes = tree.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return nodes.hasNext();
+            }
+
+            @Override
+            public Interval<P, V> next() {
+                return nodes.next().getValue();
+            }
+
+            @Override
+            public void remove() {
+                nodes.remove();
+            }
+        };
+    }
+
+    /**
+     * In-order walk which skips subtrees ending not after from and stops at the first start not before to.
+     * With closed upper bound intervals starting at to are taken as well.
+     */
+    private void overlapping(RedBlackTreeMap.Node<Interval<P, V>, Interval<P, V>> node, P from, P to,
+                             boolean toInclusive, Consumer<? super Interval<P, V>> consumer) {
+        while (node != null && node.getAggregate().end.compareTo(from) > 0) {
+            overlapping(node.getLeft(), from, to, toInclusive, consumer);
+            Interval<P, V> interval = node.getValue();
+            int cmp = interval.start.compareTo(to);
+            if (cmp > 0 || (cmp == 0 && !toInclusive)) {
+                // this interval and the right subtree start too late
+                return;
+            }
+            if (interval.end.compareTo(from) > 0) {
+                consumer.accept(interval);
+            }
+            node = node.getRight();
+        }
+    }
+
+    private static <P extends Comparable<P>, V> Interval<P, V> maxEnd(Interval<P, V> a, Interval<P, V> b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.end.compareTo(b.end) >= 0 ? a : b;
+    }
+
+    private static <P> void checkNullPoint(P point) {
+        if (point == null) {
+            throw new IllegalArgumentException("Point cannot be null!");
+        }
+    }
+
+    /**
+     * Half-open interval [start, end) with its value. Ordered by start, then by end.
+     */
+    public static final class Interval<P extends Comparable<P>, V> implements Comparable<Interval<P, V>> {
+        private final P start;
+        private final P end;
+        private final V value;
+
+        private Interval(P start, P end, V value) {
+            checkNullPoint(start);
+            checkNullPoint(end);
+            if (start.compareTo(end) >= 0) {
+                throw new IllegalArgumentException("Interval is empty: [" + start + ", " + end + ")");
+            }
+            this.start = start;
+            this.end = end;
+            this.value = value;
+        }
+
+        public P getStart() {
+            return start;
+        }
+
+        public P getEnd() {
+            return end;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public int compareTo(Interval<P, V> other) {
+            int cmp = start.compareTo(other.start);
+            return cmp != 0 ? cmp : end.compareTo(other.end);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + ")=" + value;
+        }
+    }
+}
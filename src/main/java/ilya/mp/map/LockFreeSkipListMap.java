@@ -0,0 +1,502 @@
+package ilya.mp.map;
+
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe sorted map based on lock-free skip list, a concurrent counterpart of RedBlackTreeMap.
+ * Each node is linked on a random number of levels, a search goes from the top level down
+ * and passes O(log n) nodes on average.
+ *
+ * Links are changed only by CAS. A node is removed in two steps: the remover claims it by
+ * setting its value to null, then marks its links, after that any search unlinks it on the way.
+ * Searches never wait for each other, so reads and writes of different keys do not contend.
+ *
+ * Null values are not allowed since null value marks a node which is being removed.
+ * Size and iteration are weakly consistent: they reflect some of the changes made
+ * concurrently with them and never throw ConcurrentModificationException.
+ */
+public class LockFreeSkipListMap<K extends Comparable<K>, V> implements Iterable<Map.Entry<K, V>> {
+    private static final int MAX_LEVEL = 32;
+
+    @SuppressWarnings({"rawtypes"})
+    private static final AtomicReferenceFieldUpdater<Node, Object> VALUE =
+        AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
+
+    private final Node<K, V> head;
+    private final LongAdder size;
+    private final Comparator<? super K> comparator;
+
+    public LockFreeSkipListMap() {
+        this(null);
+    }
+
+    public LockFreeSkipListMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        this.head = new Node<>(null, null, MAX_LEVEL - 1);
+        this.size = new LongAdder();
+    }
+
+    /**
+     * @return value if map contain given key, {@code null} otherwise.
+     */
+    public V get(K key) {
+        checkNullKey(key);
+        Node<K, V> node = findFirstNotLess(key);
+        // skip nodes of the key which are being removed, the key could be added again after them
+        while (node != null && compare(node.key, key) == 0) {
+            V value = node.value;
+            if (value != null) {
+                return value;
+            }
+            node = node.next[0].getReference();
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code true} if map contain given key, {@code false} otherwise.
+     */
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Adding new pair if map does not contain given key, otherwise update value.
+     * New node is linked on level 0 first, which makes it visible, then on upper levels.
+     *
+     * @throws IllegalArgumentException if key or value is null.
+     */
+    public void put(K key, V value) {
+        checkNullKey(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null!");
+        }
+        Node<K, V>[] preds = newNodes();
+        Node<K, V>[] succs = newNodes();
+        int topLevel = randomLevel();
+        while (true) {
+            if (find(key, preds, succs)) {
+                Node<K, V> node = succs[0];
+                V current = node.value;
+                if (current != null && VALUE.compareAndSet(node, current, value)) {
+                    return;
+                }
+                if (current == null) {
+                    // the node is being removed, finish its removal instead of waiting for the remover
+                    markLinks(node);
+                }
+                continue;
+            }
+            Node<K, V> node = new Node<>(key, value, topLevel);
+            for (int level = 0; level <= topLevel; level++) {
+                node.next[level].set(succs[level], false);
+            }
+            if (!preds[0].next[0].compareAndSet(succs[0], node, false, false)) {
+                continue;
+            }
+            size.increment();
+            linkUpperLevels(node, preds, succs);
+            return;
+        }
+    }
+
+    /**
+     * Removing entry by given key.
+     *
+     * @return value by key.
+     */
+    public V remove(K key) {
+        checkNullKey(key);
+        Node<K, V>[] preds = newNodes();
+        Node<K, V>[] succs = newNodes();
+        while (true) {
+            if (!find(key, preds, succs)) {
+                return null;
+            }
+            Node<K, V> node = succs[0];
+            V value = node.value;
+            if (value == null) {
+                // removed by another thread, help to unlink it and look again
+                markLinks(node);
+                continue;
+            }
+            if (VALUE.compareAndSet(node, value, null)) {
+                size.decrement();
+                markLinks(node);
+                find(key, preds, succs);
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Removes all of the mappings present at the time of the call.
+     */
+    public void clear() {
+        for (Node<K, V> node = head.next[0].getReference(); node != null; node = node.next[0].getReference()) {
+            V value = node.value;
+            if (value != null && VALUE.compareAndSet(node, value, null)) {
+                size.decrement();
+                markLinks(node);
+            }
+        }
+        // unlink marked nodes
+        find(null, newNodes(), newNodes());
+    }
+
+    /**
+     * @return the least key in the map.
+     * @throws NoSuchElementException if the map is empty.
+     */
+    public K firstKey() {
+        Node<K, V> node = nextLive(head.next[0].getReference(), null, true);
+        if (node == null) {
+            throw new NoSuchElementException("Map is empty!");
+        }
+        return node.key;
+    }
+
+    /**
+     * @return the greatest key in the map.
+     * @throws NoSuchElementException if the map is empty.
+     */
+    public K lastKey() {
+        K key = previousLiveKey(null, false);
+        if (key == null) {
+            throw new NoSuchElementException("Map is empty!");
+        }
+        return key;
+    }
+
+    /**
+     * @return the greatest key less than or equal to the given key, or {@code null} if there is no such key.
+     */
+    public K floorKey(K key) {
+        checkNullKey(key);
+        return previousLiveKey(key, true);
+    }
+
+    /**
+     * @return the greatest key strictly less than the given key, or {@code null} if there is no such key.
+     */
+    public K lowerKey(K key) {
+        checkNullKey(key);
+        return previousLiveKey(key, false);
+    }
+
+    /**
+     * @return the least key greater than or equal to the given key, or {@code null} if there is no such key.
+     */
+    public K ceilingKey(K key) {
+        checkNullKey(key);
+        Node<K, V> node = nextLive(findFirstNotLess(key), key, true);
+        return node == null ? null : node.key;
+    }
+
+    /**
+     * @return the least key strictly greater than the given key, or {@code null} if there is no such key.
+     */
+    public K higherKey(K key) {
+        checkNullKey(key);
+        Node<K, V> node = nextLive(findFirstNotLess(key), key, false);
+        return node == null ? null : node.key;
+    }
+
+    public boolean isEmpty() {
+        return nextLive(head.next[0].getReference(), null, true) == null;
+    }
+
+    /**
+     * @return number of entries, not exact if the map is being changed concurrently.
+     */
+    public int getSize() {
+        long sum = size.sum();
+        return sum < 0 ? 0 : (int) Math.min(sum, Integer.MAX_VALUE);
+    }
+
+    public Comparator<? super K> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Weakly consistent iterator over entries in key order. Entries are immutable pairs
+     * of the key and the value it had when the iterator reached it.
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new SkipListIterator();
+    }
+
+    /**
+     * Search the key on all levels from top to bottom, unlinking marked nodes on the way.
+     * Null key is greater than any key.
+     *
+     * @param preds - last nodes with key less than given on each level.
+     * @param succs - nodes following preds on each level.
+     * @return {@code true} if node with the key is on level 0.
+     */
+    private boolean find(K key, Node<K, V>[] preds, Node<K, V>[] succs) {
+        boolean[] marked = new boolean[1];
+        retry:
+        while (true) {
+            Node<K, V> pred = head;
+            Node<K, V> curr = null;
+            for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+                curr = pred.next[level].getReference();
+                while (curr != null) {
+                    Node<K, V> succ = curr.next[level].get(marked);
+                    if (marked[0]) {
+                        if (!pred.next[level].compareAndSet(curr, succ, false, false)) {
+                            continue retry;
+                        }
+                        curr = succ;
+                    } else if (key == null || compare(curr.key, key) < 0) {
+                        pred = curr;
+                        curr = succ;
+                    } else {
+                        break;
+                    }
+                }
+                preds[level] = pred;
+                succs[level] = curr;
+            }
+            return curr != null && key != null && compare(curr.key, key) == 0;
+        }
+    }
+
+    /**
+     * Link the node, which is already on level 0, on the rest of its levels.
+     * Stops when the node is removed concurrently.
+     */
+    private void linkUpperLevels(Node<K, V> node, Node<K, V>[] preds, Node<K, V>[] succs) {
+        for (int level = 1; level < node.next.length; level++) {
+            while (true) {
+                Node<K, V> succ = node.next[level].getReference();
+                if (node.next[level].isMarked()) {
+                    return;
+                }
+                if (succ != succs[level] && !node.next[level].compareAndSet(succ, succs[level], false, false)) {
+                    return;
+                }
+                if (preds[level].next[level].compareAndSet(succs[level], node, false, false)) {
+                    if (node.next[level].isMarked()) {
+                        // removed while being linked, the remover could have passed this level already
+                        find(node.key, preds, succs);
+                        return;
+                    }
+                    break;
+                }
+                find(node.key, preds, succs);
+                if (succs[0] != node) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Mark links of the node from the top level down, so that no node can be linked after it.
+     */
+    private void markLinks(Node<K, V> node) {
+        for (int level = node.next.length - 1; level >= 0; level--) {
+            AtomicMarkableReference<Node<K, V>> next = node.next[level];
+            while (!next.isMarked()) {
+                next.attemptMark(next.getReference(), true);
+            }
+        }
+    }
+
+    /**
+     * Search without unlinking, reads never write shared memory.
+     *
+     * @return first node on level 0 with key not less than given, possibly a removed one.
+     */
+    private Node<K, V> findFirstNotLess(K key) {
+        Node<K, V> pred = head;
+        Node<K, V> curr = null;
+        for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+            curr = pred.next[level].getReference();
+            while (curr != null && compare(curr.key, key) < 0) {
+                pred = curr;
+                curr = curr.next[level].getReference();
+            }
+        }
+        return curr;
+    }
+
+    /**
+     * @return first node starting from given one which is not removed and whose key
+     * is greater than (or equal to, if inclusive) the bound, null bound accepts any key.
+     */
+    private Node<K, V> nextLive(Node<K, V> node, K bound, boolean inclusive) {
+        while (node != null) {
+            if (node.value != null && (bound == null || compare(node.key, bound) > (inclusive ? -1 : 0))) {
+                return node;
+            }
+            node = node.next[0].getReference();
+        }
+        return null;
+    }
+
+    /**
+     * @return key of the last node which is not removed and whose key is less than (or equal to,
+     * if inclusive) the bound, null bound is greater than any key.
+     */
+    private K previousLiveKey(K bound, boolean inclusive) {
+        while (true) {
+            Node<K, V> pred = head;
+            for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+                Node<K, V> curr = pred.next[level].getReference();
+                while (curr != null && (bound == null || compare(curr.key, bound) < (inclusive ? 1 : 0))) {
+                    pred = curr;
+                    curr = curr.next[level].getReference();
+                }
+            }
+            if (pred == head) {
+                return null;
+            }
+            if (pred.value != null) {
+                return pred.key;
+            }
+            // removed node, look for a key strictly less than it
+            bound = pred.key;
+            inclusive = false;
+        }
+    }
+
+    /**
+     * @return level from 0 to MAX_LEVEL - 1, level i is chosen with probability 1 / 2^(i + 1).
+     */
+    private int randomLevel() {
+        return Math.min(Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt()), MAX_LEVEL - 1);
+    }
+
+    private int compare(K a, K b) {
+        return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+    }
+
+    private void checkNullKey(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null!");
+        }
+    }
+
+    /**
+     * WARNING! USED ONLY FOR TEST PURPOSE. Must be called when no thread changes the map.
+     *
+     * @return {@code true} if keys are strictly increasing on every level, every node of upper level
+     * is on level 0, no removed node is left and size is right.
+     */
+    boolean isValidSkipList() {
+        int count = 0;
+        for (Node<K, V> node = head.next[0].getReference(); node != null; node = node.next[0].getReference()) {
+            if (node.value == null || node.next[0].isMarked()) {
+                return false;
+            }
+            count++;
+        }
+        for (int level = 0; level < MAX_LEVEL; level++) {
+            Node<K, V> low = head.next[0].getReference();
+            Node<K, V> prev = null;
+            for (Node<K, V> node = head.next[level].getReference(); node != null; node = node.next[level].getReference()) {
+                if (prev != null && compare(prev.key, node.key) >= 0) {
+                    return false;
+                }
+                while (low != null && low != node) {
+                    low = low.next[0].getReference();
+                }
+                if (low == null) {
+                    return false;
+                }
+                prev = node;
+            }
+        }
+        return count == size.sum();
+    }
+
+    /**
+     * @return array for predecessors or successors of a key on every level.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Node<K, V>[] newNodes() {
+        return new Node[MAX_LEVEL];
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        // accessed by VALUE updater
+        volatile V value;
+        private final AtomicMarkableReference<Node<K, V>>[] next;
+
+        Node(K key, V value, int topLevel) {
+            this.key = key;
+            this.value = value;
+            this.next = newLinks(topLevel + 1);
+            for (int level = 0; level <= topLevel; level++) {
+                next[level] = new AtomicMarkableReference<>(null, false);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <K, V> AtomicMarkableReference<Node<K, V>>[] newLinks(int length) {
+            return new AtomicMarkableReference[length];
+        }
+    }
+
+    private final class SkipListIterator implements Iterator<Map.Entry<K, V>> {
+        private Node<K, V> next;
+        private V nextValue;
+        private K lastReturned;
+
+        SkipListIterator() {
+            advance(head.next[0].getReference());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(next.key, nextValue);
+            lastReturned = next.key;
+            advance(next.next[0].getReference());
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException("Last returned element is null");
+            }
+            LockFreeSkipListMap.this.remove(lastReturned);
+            lastReturned = null;
+        }
+
+        private void advance(Node<K, V> node) {
+            while (node != null) {
+                V value = node.value;
+                if (value != null) {
+                    next = node;
+                    nextValue = value;
+                    return;
+                }
+                node = node.next[0].getReference();
+            }
+            next = null;
+            nextValue = null;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package ilya.mp.map;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Red-black tree map with primitive long keys, laid out like ArrayRedBlackTreeMap on top of
+ * {@link IndexedRedBlackTree}. Keys are stored unboxed in a long array and compared directly,
+ * so put, get and navigation do not allocate and do not call compareTo.
+ *
+ * Since a primitive key cannot be null, navigation methods throw NoSuchElementException
+ * when there is no such key, and ranges are walked by a {@link Cursor} instead of an iterator of entries.
+ */
+public class LongTreeMap<V> extends IndexedRedBlackTree<V> {
+    private long[] keys;
+
+    public LongTreeMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity - number of nodes to allocate arrays for.
+     */
+    public LongTreeMap(int initialCapacity) {
+        super(initialCapacity);
+        this.keys = new long[initialCapacity + 1];
+    }
+
+    /**
+     * @return value if map contain given key, {@code null} otherwise.
+     */
+    public V get(long key) {
+        int node = getNode(key);
+        return node == NIL ? null : valueAt(node);
+    }
+
+    /**
+     * @return {@code true} if map contain given key, {@code false} otherwise.
+     */
+    public boolean containsKey(long key) {
+        return getNode(key) != NIL;
+    }
+
+    /**
+     * Adding new pair if map does not contain given key, otherwise update value.
+     */
+    public void put(long key, V value) {
+        int tail = root;
+        int last = NIL;
+        boolean less = false;
+        while (tail != NIL) {
+            last = tail;
+            long current = keys[tail];
+            if (key < current) {
+                less = true;
+                tail = left[tail];
+            } else if (key > current) {
+                less = false;
+                tail = right[tail];
+            } else {
+                values[tail] = value;
+                return;
+            }
+        }
+        int fresh = allocate(value);
+        keys[fresh] = key;
+        link(fresh, last, less);
+    }
+
+    /**
+     * Removing node by given key.
+     *
+     * @return value by key, {@code null} if map does not contain the key.
+     */
+    public V remove(long key) {
+        int node = getNode(key);
+        if (node == NIL) {
+            return null;
+        }
+        V oldValue = valueAt(node);
+        deleteNode(node);
+        return oldValue;
+    }
+
+    /**
+     * @return the least key in the map.
+     * @throws NoSuchElementException if the map is empty.
+     */
+    public long firstKey() {
+        checkEmptyMap();
+        return keys[minimum(root)];
+    }
+
+    /**
+     * @return the greatest key in the map.
+     * @throws NoSuchElementException if the map is empty.
+     */
+    public long lastKey() {
+        checkEmptyMap();
+        return keys[maximum(root)];
+    }
+
+    /**
+     * @return the greatest key less than or equal to the given key.
+     * @throws NoSuchElementException if there is no such key.
+     */
+    public long floorKey(long key) {
+        return keyOrThrow(floorNode(key, true), "floor", key);
+    }
+
+    /**
+     * @return the greatest key strictly less than the given key.
+     * @throws NoSuchElementException if there is no such key.
+     */
+    public long lowerKey(long key) {
+        return keyOrThrow(floorNode(key, false), "lower", key);
+    }
+
+    /**
+     * @return the least key greater than or equal to the given key.
+     * @throws NoSuchElementException if there is no such key.
+     */
+    public long ceilingKey(long key) {
+        return keyOrThrow(ceilingNode(key, true), "ceiling", key);
+    }
+
+    /**
+     * @return the least key strictly greater than the given key.
+     * @throws NoSuchElementException if there is no such key.
+     */
+    public long higherKey(long key) {
+        return keyOrThrow(ceilingNode(key, false), "higher", key);
+    }
+
+    /**
+     * @return cursor over all entries in ascending order of keys.
+     */
+    public Cursor cursor() {
+        return new Cursor(root == NIL ? NIL : minimum(root), Long.MAX_VALUE, true);
+    }
+
+    /**
+     * @return cursor over the keys from fromKey inclusive to toKey exclusive.
+     */
+    public Cursor range(long fromKey, long toKey) {
+        return range(fromKey, true, toKey, false);
+    }
+
+    /**
+     * Cursor over the entries whose keys range from fromKey to toKey, the first one is found in O(log n).
+     *
+     * @throws IllegalArgumentException if fromKey is greater than toKey.
+     */
+    public Cursor range(long fromKey, boolean fromInclusive, long toKey, boolean toInclusive) {
+        if (fromKey > toKey) {
+            throw new IllegalArgumentException("From key is greater than to key!");
+        }
+        return new Cursor(ceilingNode(fromKey, fromInclusive), toKey, toInclusive);
+    }
+
+    private int getNode(long key) {
+        int node = root;
+        while (node != NIL) {
+            long current = keys[node];
+            if (key < current) {
+                node = left[node];
+            } else if (key > current) {
+                node = right[node];
+            } else {
+                return node;
+            }
+        }
+        return NIL;
+    }
+
+    /**
+     * @return node with the least key greater than (or equal to, if inclusive is true) the key, NIL if there is none.
+     */
+    private int ceilingNode(long key, boolean inclusive) {
+        int node = root;
+        int ceiling = NIL;
+        while (node != NIL) {
+            long current = keys[node];
+            if (key == current && inclusive) {
+                return node;
+            }
+            if (key < current) {
+                ceiling = node;
+                node = left[node];
+            } else {
+                node = right[node];
+            }
+        }
+        return ceiling;
+    }
+
+    /**
+     * @return node with the greatest key less than (or equal to, if inclusive is true) the key, NIL if there is none.
+     */
+    private int floorNode(long key, boolean inclusive) {
+        int node = root;
+        int floor = NIL;
+        while (node != NIL) {
+            long current = keys[node];
+            if (key == current && inclusive) {
+                return node;
+            }
+            if (key > current) {
+                floor = node;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return floor;
+    }
+
+    @Override
+    void growKeys(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    @Override
+    void releaseKey(int node) {
+        // primitive keys hold no references
+    }
+
+    @Override
+    boolean isLess(int a, int b) {
+        return keys[a] < keys[b];
+    }
+
+    private long keyOrThrow(int node, String relation, long key) {
+        if (node == NIL) {
+            throw new NoSuchElementException("No " + relation + " key for " + key);
+        }
+        return keys[node];
+    }
+
+    private void checkEmptyMap() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Map is empty!");
+        }
+    }
+
+    /**
+     * Forward cursor over a key range which exposes the current key as a primitive, so walking
+     * a range allocates nothing but the cursor itself:
+     * <pre>
+     *     LongTreeMap.Cursor cursor = map.range(from, to);
+     *     while (cursor.next()) {
+     *         consume(cursor.key(), cursor.value());
+     *     }
+     * </pre>
+     * The map must not be modified during the walk other than through {@link #remove()} and {@link #setValue(Object)}.
+     */
+    public final class Cursor {
+        private int next;
+        private int current = NIL;
+        private final long toKey;
+        private final boolean toInclusive;
+
+        private Cursor(int first, long toKey, boolean toInclusive) {
+            this.next = first;
+            this.toKey = toKey;
+            this.toInclusive = toInclusive;
+        }
+
+        /**
+         * Move to the next entry of the range.
+         *
+         * @return {@code false} if the range is over.
+         */
+        public boolean next() {
+            if (next == NIL || keys[next] > toKey || (keys[next] == toKey && !toInclusive)) {
+                next = NIL;
+                current = NIL;
+                return false;
+            }
+            current = next;
+            next = successor(next);
+            return true;
+        }
+
+        /**
+         * @throws IllegalStateException if the cursor is not at an entry.
+         */
+        public long key() {
+            checkCurrent();
+            return keys[current];
+        }
+
+        /**
+         * @throws IllegalStateException if the cursor is not at an entry.
+         */
+        public V value() {
+            checkCurrent();
+            return valueAt(current);
+        }
+
+        /**
+         * @throws IllegalStateException if the cursor is not at an entry.
+         */
+        public void setValue(V value) {
+            checkCurrent();
+            values[current] = value;
+        }
+
+        /**
+         * Remove the current entry. Nodes are unlinked without moving keys between slots, so the next node stays valid.
+         *
+         * @throws IllegalStateException if the cursor is not at an entry.
+         */
+        public void remove() {
+            checkCurrent();
+            deleteNode(current);
+            current = NIL;
+        }
+
+        private void checkCurrent() {
+            if (current == NIL) {
+                throw new IllegalStateException("Cursor is not at an entry!");
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ilya.mp.map;
+
+import java.util.function.BinaryOperator;
+
+/**
+ * Associative operation with an identity element, used to aggregate values of a key range.
+ * The operation does not have to be commutative, values are combined in key order.
+ */
+public interface Monoid<V> {
+
+    /**
+     * @return value x such that combine(x, v) and combine(v, x) are equal to v.
+     */
+    V identity();
+
+    /**
+     * Must be associative: combine(combine(a, b), c) is equal to combine(a, combine(b, c)).
+     */
+    V combine(V a, V b);
+
+    static <V> Monoid<V> of(V identity, BinaryOperator<V> combine) {
+        return new Monoid<>() {
+            @Override
+            public V identity() {
+                return identity;
+            }
+
+            @Override
+            public V combine(V a, V b) {
+                return combine.apply(a, b);
+            }
+        };
+    }
+}
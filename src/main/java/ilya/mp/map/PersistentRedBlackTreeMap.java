@@ -0,0 +1,458 @@
+package ilya.mp.map;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Persistent sorted map based on left-leaning red-black tree.
+ * Put and remove never change nodes reachable from a published version: they copy
+ * the O(log n) nodes on the search path and publish the new root with a volatile write.
+ * So snapshot takes O(1), readers need no locks and see a consistent version,
+ * and old versions are garbage-collected once no snapshot or iterator refers to them.
+ *
+ * Writes are serialized by the map's monitor.
+ */
+public class PersistentRedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Map.Entry<K, V>> {
+
+    private static final boolean BLACK = true;
+    private static final boolean RED = false;
+
+    private final Comparator<? super K> comparator;
+    private volatile Version<K, V> version;
+
+    // owner of the nodes copied by the running write, such nodes are changed in place
+    private Object edit;
+    private boolean added;
+
+    public PersistentRedBlackTreeMap() {
+        this((Comparator<? super K>) null);
+    }
+
+    public PersistentRedBlackTreeMap(Comparator<? super K> comparator) {
+        this(comparator, new Version<>(null, 0));
+    }
+
+    private PersistentRedBlackTreeMap(Comparator<? super K> comparator, Version<K, V> version) {
+        this.comparator = comparator;
+        this.version = version;
+    }
+
+    /**
+     * @return independent map sharing all nodes with this one. Changes of either map are not visible in the other.
+     */
+    public PersistentRedBlackTreeMap<K, V> snapshot() {
+        return new PersistentRedBlackTreeMap<>(comparator, version);
+    }
+
+    /**
+     * @return value if map contain given key, {@code null} otherwise.
+     */
+    public V get(K key) {
+        checkNullKey(key);
+        Node<K, V> node = getNode(version.root, key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * @return {@code true} if map contain given key, {@code false} otherwise.
+     */
+    public boolean containsKey(K key) {
+        checkNullKey(key);
+        return getNode(version.root, key) != null;
+    }
+
+    /**
+     * Adding new pair if map does not contain given key, otherwise update value.
+     * The search path is copied and rebalanced on the way up.
+     */
+    public synchronized void put(K key, V value) {
+        checkNullKey(key);
+        Version<K, V> current = version;
+        edit = new Object();
+        added = false;
+        Node<K, V> root = insert(current.root, key, value);
+        root.color = BLACK;
+        edit = null;
+        version = new Version<>(root, added ? current.size + 1 : current.size);
+    }
+
+    /**
+     * Removing entry by given key. Red links are moved down the search path,
+     * so the removed node is never a black leaf.
+     *
+     * @return value by key.
+     */
+    public synchronized V remove(K key) {
+        checkNullKey(key);
+        Version<K, V> current = version;
+        Node<K, V> removed = getNode(current.root, key);
+        if (removed == null) {
+            return null;
+        }
+        edit = new Object();
+        Node<K, V> root = edit(current.root);
+        if (!isRed(root.left) && !isRed(root.right)) {
+            root.color = RED;
+        }
+        root = delete(root, key);
+        if (root != null) {
+            root.color = BLACK;
+        }
+        edit = null;
+        version = new Version<>(root, current.size - 1);
+        return removed.value;
+    }
+
+    /**
+     * Removes all of the mappings from this map. Snapshots keep their entries.
+     */
+    public synchronized void clear() {
+        version = new Version<>(null, 0);
+    }
+
+    public boolean isEmpty() {
+        return version.size == 0;
+    }
+
+    public int getSize() {
+        return version.size;
+    }
+
+    public Comparator<? super K> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Iterator over the version of the map at the time of the call, later changes are not visible.
+     * Removal through the iterator removes the key from the map.
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new TreeIterator(version.root);
+    }
+
+    private Node<K, V> getNode(Node<K, V> node, K key) {
+        while (node != null) {
+            int cmp = compare(key, node.key);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private Node<K, V> insert(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            added = true;
+            return new Node<>(key, value, edit);
+        }
+        node = edit(node);
+        int cmp = compare(key, node.key);
+        if (cmp < 0) {
+            node.left = insert(node.left, key, value);
+        } else if (cmp > 0) {
+            node.right = insert(node.right, key, value);
+        } else {
+            node.value = value;
+        }
+        return balance(node);
+    }
+
+    /**
+     * The key must be in the subtree.
+     */
+    private Node<K, V> delete(Node<K, V> node, K key) {
+        node = edit(node);
+        if (compare(key, node.key) < 0) {
+            if (!isRed(node.left) && !isRed(node.left.left)) {
+                node = moveRedLeft(node);
+            }
+            node.left = delete(node.left, key);
+        } else {
+            if (isRed(node.left)) {
+                node = rotateRight(node);
+            }
+            if (compare(key, node.key) == 0 && node.right == null) {
+                return null;
+            }
+            if (!isRed(node.right) && !isRed(node.right.left)) {
+                node = moveRedRight(node);
+            }
+            if (compare(key, node.key) == 0) {
+                Node<K, V> min = node.right;
+                while (min.left != null) {
+                    min = min.left;
+                }
+                node.key = min.key;
+                node.value = min.value;
+                node.right = deleteMin(node.right);
+            } else {
+                node.right = delete(node.right, key);
+            }
+        }
+        return balance(node);
+    }
+
+    private Node<K, V> deleteMin(Node<K, V> node) {
+        if (node.left == null) {
+            return null;
+        }
+        node = edit(node);
+        if (!isRed(node.left) && !isRed(node.left.left)) {
+            node = moveRedLeft(node);
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    /**
+     * Restore left-leaning invariants of the editable node on the way up.
+     */
+    private Node<K, V> balance(Node<K, V> node) {
+        if (isRed(node.right) && !isRed(node.left)) {
+            node = rotateLeft(node);
+        }
+        if (isRed(node.left) && isRed(node.left.left)) {
+            node = rotateRight(node);
+        }
+        if (isRed(node.left) && isRed(node.right)) {
+            flipColors(node);
+        }
+        return node;
+    }
+
+    /**
+     * Make the left child or one of its children red.
+     */
+    private Node<K, V> moveRedLeft(Node<K, V> node) {
+        flipColors(node);
+        if (isRed(node.right.left)) {
+            node.right = rotateRight(node.right);
+            node = rotateLeft(node);
+            flipColors(node);
+        }
+        return node;
+    }
+
+    /**
+     * Make the right child or one of its children red.
+     */
+    private Node<K, V> moveRedRight(Node<K, V> node) {
+        flipColors(node);
+        if (isRed(node.left.left)) {
+            node = rotateRight(node);
+            flipColors(node);
+        }
+        return node;
+    }
+
+    private Node<K, V> rotateLeft(Node<K, V> node) {
+        Node<K, V> pivot = edit(node.right);
+        node.right = pivot.left;
+        pivot.left = node;
+        pivot.color = node.color;
+        node.color = RED;
+        return pivot;
+    }
+
+    private Node<K, V> rotateRight(Node<K, V> node) {
+        Node<K, V> pivot = edit(node.left);
+        node.left = pivot.right;
+        pivot.right = node;
+        pivot.color = node.color;
+        node.color = RED;
+        return pivot;
+    }
+
+    private void flipColors(Node<K, V> node) {
+        node.color = !node.color;
+        node.left = edit(node.left);
+        node.left.color = !node.left.color;
+        node.right = edit(node.right);
+        node.right.color = !node.right.color;
+    }
+
+    /**
+     * @return the node itself if it was copied by the running write, otherwise its copy.
+     */
+    private Node<K, V> edit(Node<K, V> node) {
+        return node.owner == edit ? node : new Node<>(node, edit);
+    }
+
+    private boolean isRed(Node<K, V> node) {
+        return node != null && node.color == RED;
+    }
+
+    private int compare(K a, K b) {
+        return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+    }
+
+    private void checkNullKey(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null!");
+        }
+    }
+
+    /**
+     * WARNING! USED ONLY FOR TEST PURPOSE.
+     *
+     * @return {@code true} if the tree is a valid left-leaning red-black tree with sorted keys and right size.
+     */
+    boolean isValidRedBlackTree() {
+        Version<K, V> current = version;
+        if (isRed(current.root)) {
+            return false;
+        }
+        int[] count = new int[1];
+        return blackHeight(current.root, null, null, count) >= 0 && count[0] == current.size;
+    }
+
+    // black height of the subtree or -1 if the subtree is not valid
+    private int blackHeight(Node<K, V> node, K lo, K hi, int[] count) {
+        if (node == null) {
+            return 0;
+        }
+        count[0]++;
+        if ((lo != null && compare(node.key, lo) <= 0) || (hi != null && compare(node.key, hi) >= 0)
+            || isRed(node.right) || (isRed(node) && isRed(node.left))) {
+            return -1;
+        }
+        int left = blackHeight(node.left, lo, node.key, count);
+        int right = blackHeight(node.right, node.key, hi, count);
+        if (left < 0 || left != right) {
+            return -1;
+        }
+        return left + (node.color == BLACK ? 1 : 0);
+    }
+
+    /**
+     * Root and size of the map published together.
+     */
+    private static final class Version<K, V> {
+        private final Node<K, V> root;
+        private final int size;
+
+        Version(Node<K, V> root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Node is changed only by the write which created it, before the node is published.
+     */
+    private static final class Node<K, V> implements Map.Entry<K, V> {
+        private final Object owner;
+        private K key;
+        private V value;
+        private boolean color;
+        private Node<K, V> left;
+        private Node<K, V> right;
+
+        Node(K key, V value, Object owner) {
+            this.key = key;
+            this.value = value;
+            this.color = RED;
+            this.owner = owner;
+        }
+
+        Node(Node<K, V> source, Object owner) {
+            this.key = source.key;
+            this.value = source.value;
+            this.color = source.color;
+            this.left = source.left;
+            this.right = source.right;
+            this.owner = owner;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Nodes are shared between versions, so values are changed only through the map.
+         *
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("Use put to change the value!");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * In-order traversal with the stack of left spine, nodes have no parent links.
+     */
+    private final class TreeIterator implements Iterator<Map.Entry<K, V>> {
+        private final Deque<Node<K, V>> stack = new ArrayDeque<>();
+        private Node<K, V> lastReturned;
+
+        TreeIterator(Node<K, V> root) {
+            pushLeft(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = stack.pop();
+            pushLeft(node.right);
+            lastReturned = node;
+            return node;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException("Last returned element is null");
+            }
+            PersistentRedBlackTreeMap.this.remove(lastReturned.key);
+            lastReturned = null;
+        }
+
+        private void pushLeft(Node<K, V> node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+    }
+}
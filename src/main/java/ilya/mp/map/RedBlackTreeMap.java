@@ -1,43 +1,142 @@
 package ilya.mp.map;
 
+import java.util.AbstractMap;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<RedBlackTreeMap.Node<K, V>> {
 
     private static final boolean BLACK = true;
     private static final boolean RED = false;
+    private static final int ENTRY_CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SORTED
+        | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.SIZED | Spliterator.SUBSIZED;
+    // subproblems of bulk operations smaller than this are not forked
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
 
     private Node<K, V> root;
     private int size;
+    // last inserted node, searches start from it. Only modifications move it,
+    // so lookups do not write to the map and can run from many threads while it is not modified
+    private Node<K, V> finger;
+    // node with the greatest key, null if it has to be found again
+    private Node<K, V> last;
     private final Comparator<? super K> comparator;
+    // aggregates values of subtrees, null if the map is not augmented
+    private final Monoid<V> monoid;
 
     public RedBlackTreeMap() {
-        comparator = null;
+        this(null, null);
     }
 
     public RedBlackTreeMap(Comparator<? super K> comparator) {
+        this(comparator, null);
+    }
+
+    /**
+     * Map augmented by the monoid: every node keeps the aggregate of values of its subtree,
+     * which lets {@link #aggregate(Comparable, Comparable)} run in O(log n).
+     */
+    public RedBlackTreeMap(Monoid<V> monoid) {
+        this(null, monoid);
+    }
+
+    public RedBlackTreeMap(Comparator<? super K> comparator, Monoid<V> monoid) {
         this.comparator = comparator;
+        this.monoid = monoid;
     }
 
     /**
-     * Copy constructor. Order of the previous tree is not saved.
+     * Copy constructor. The copy is built from the sorted nodes of the source in O(n).
      */
     public RedBlackTreeMap(RedBlackTreeMap<K, V> source) {
-        for (Node<K, V> kvNode : source) {
-            put(kvNode.getKey(), kvNode.getValue());
-        }
         comparator = source.getComparator();
+        monoid = source.monoid;
+        buildFromSorted(source.iterator(), source.getSize());
+    }
+
+    /**
+     * Build the map from keys sorted in ascending order in O(n) without rotations.
+     *
+     * @param keys   - sorted keys without duplicates.
+     * @param values - values of the keys.
+     * @throws IllegalArgumentException if arrays have different length, a key is null or keys are not sorted.
+     */
+    public static <K extends Comparable<K>, V> RedBlackTreeMap<K, V> fromSorted(K[] keys, V[] values) {
+        return fromSorted(keys, values, null);
+    }
+
+    /**
+     * Same as {@link #fromSorted(Comparable[], Object[])}, keys are sorted by the comparator.
+     */
+    public static <K extends Comparable<K>, V> RedBlackTreeMap<K, V> fromSorted(K[] keys, V[] values,
+                                                                                Comparator<? super K> comparator) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Keys and values have different length!");
+        }
+        Iterator<Map.Entry<K, V>> entries = new Iterator<>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < keys.length;
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(keys[i], values[i]);
+                i++;
+                return entry;
+            }
+        };
+        return fromSorted(entries, keys.length, comparator);
+    }
+
+    /**
+     * Build the map from entries sorted in ascending order of keys in O(n) without rotations.
+     *
+     * @param entries    - iterator over sorted entries without duplicate keys.
+     * @param size       - number of entries to take from the iterator.
+     * @param comparator - comparator of the keys, natural order if null.
+     * @throws IllegalArgumentException if there are less entries than size, a key is null or keys are not sorted.
+     */
+    public static <K extends Comparable<K>, V> RedBlackTreeMap<K, V> fromSorted(
+        Iterator<? extends Map.Entry<? extends K, ? extends V>> entries, int size, Comparator<? super K> comparator) {
+        return fromSorted(entries, size, comparator, null);
+    }
+
+    /**
+     * Same as {@link #fromSorted(Iterator, int, Comparator)}, the built map is augmented by the monoid if it is not null.
+     */
+    static <K extends Comparable<K>, V> RedBlackTreeMap<K, V> fromSorted(
+        Iterator<? extends Map.Entry<? extends K, ? extends V>> entries, int size, Comparator<? super K> comparator,
+        Monoid<V> monoid) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative!");
+        }
+        RedBlackTreeMap<K, V> map = new RedBlackTreeMap<K, V>(comparator, monoid);
+        map.buildFromSorted(entries, size);
+        return map;
     }
 
     /**
      * Find node by specified key and return value.
+     * The search starts from the last inserted node, but does not move it, so lookups do not change the map.
      *
      * @return value if map contain given key, {@code null} otherwise.
      */
     public V get(K key) {
-        Node<K, V> node = getNode(key);
+        Node<K, V> node = fingerNode(key);
         return node == null ? null : node.value;
     }
 
@@ -45,28 +144,207 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
      * @return {@code true} if map contain given key, {@code null} otherwise.
      */
     public boolean containsKey(K key) {
-        return getNode(key) != null;
+        return fingerNode(key) != null;
     }
 
     /**
-     * Adding new pair if map does not contain given key, otherwise update value.
+     * @return the least key in the map.
+     * @throws NoSuchElementException if the map is empty.
      */
-    public void put(K key, V value) {
-        Node<K, V> freshNode = null;
+    public K firstKey() {
+        return keyOrThrow(firstNode());
+    }
 
-        if (key == null) {
-            throw new IllegalArgumentException("Key cannot be null!");
+    /**
+     * @return the greatest key in the map.
+     * @throws NoSuchElementException if the map is empty.
+     */
+    public K lastKey() {
+        return keyOrThrow(lastNode());
+    }
+
+    /**
+     * @return the greatest key less than or equal to the given key, or {@code null} if there is no such key.
+     */
+    public K floorKey(K key) {
+        return keyOrNull(floorNode(key, true));
+    }
+
+    /**
+     * @return the greatest key strictly less than the given key, or {@code null} if there is no such key.
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(floorNode(key, false));
+    }
+
+    /**
+     * @return the least key greater than or equal to the given key, or {@code null} if there is no such key.
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(ceilingNode(key, true));
+    }
+
+    /**
+     * @return the least key strictly greater than the given key, or {@code null} if there is no such key.
+     */
+    public K higherKey(K key) {
+        return keyOrNull(ceilingNode(key, false));
+    }
+
+    /**
+     * Find the key by its index in the key order using subtree sizes, O(log n).
+     *
+     * @param index - zero based index, 0 is the least key.
+     * @return key with exactly index keys less than it.
+     * @throws IndexOutOfBoundsException if index is out of range [0, size).
+     */
+    public K select(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
         }
-        if (root == null) {
-            root = new Node<>(key, value, null);
-            size++;
-        } else {
-            freshNode = putNode(key, value);
+        return selectNode(index).key;
+    }
+
+    /**
+     * @return number of keys strictly less than the given key, O(log n).
+     */
+    public int rank(K key) {
+        checkNullKey(key);
+        int rank = 0;
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = compare(key, node.key);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                rank += sizeOf(node.left) + 1;
+                node = node.right;
+            } else {
+                return rank + sizeOf(node.left);
+            }
         }
-        if (freshNode != null) {
-            balanceAfterPut(freshNode);
-            size++;
+        return rank;
+    }
+
+    /**
+     * @return number of keys k such that lo <= k <= hi, O(log n).
+     */
+    public int countRange(K lo, K hi) {
+        checkNullKey(lo);
+        checkNullKey(hi);
+        if (compare(lo, hi) > 0) {
+            return 0;
+        }
+        return rank(hi) - rank(lo) + (containsKey(hi) ? 1 : 0);
+    }
+
+    /**
+     * Combine values of keys k such that lo <= k <= hi in key order, O(log n).
+     * The values are collected from the aggregates of O(log n) subtrees hanging
+     * off the search paths of lo and hi.
+     *
+     * @return aggregate of the range, identity if the range is empty.
+     * @throws IllegalStateException if the map was created without a monoid.
+     */
+    public V aggregate(K lo, K hi) {
+        checkNullKey(lo);
+        checkNullKey(hi);
+        if (monoid == null) {
+            throw new IllegalStateException("Map has no monoid!");
+        }
+        // find the top node of the range, paths to lo and hi split there
+        Node<K, V> node = root;
+        while (node != null) {
+            if (compare(node.key, lo) < 0) {
+                node = node.right;
+            } else if (compare(node.key, hi) > 0) {
+                node = node.left;
+            } else {
+                break;
+            }
+        }
+        if (node == null) {
+            return monoid.identity();
+        }
+        V result = monoid.combine(aggregateFrom(node.left, lo), node.value);
+        return monoid.combine(result, aggregateTo(node.right, hi));
+    }
+
+    /**
+     * Returns a view of the part of this map whose keys range from fromKey to toKey.
+     * View is backed by the map, iteration starts from the lower bound found in O(log n).
+     *
+     * @throws IllegalArgumentException if a key is null or fromKey is greater than toKey.
+     */
+    public SubMap subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        checkNullKey(fromKey);
+        checkNullKey(toKey);
+        if (compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("From key is greater than to key!");
+        }
+        return new SubMap(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    /**
+     * @return view of the keys from fromKey inclusive to toKey exclusive.
+     */
+    public SubMap subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @return view of the keys less than (or equal to, if inclusive is true) toKey.
+     */
+    public SubMap headMap(K toKey, boolean inclusive) {
+        checkNullKey(toKey);
+        return new SubMap(null, false, toKey, inclusive);
+    }
+
+    /**
+     * @return view of the keys strictly less than toKey.
+     */
+    public SubMap headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * @return view of the keys greater than (or equal to, if inclusive is true) fromKey.
+     */
+    public SubMap tailMap(K fromKey, boolean inclusive) {
+        checkNullKey(fromKey);
+        return new SubMap(fromKey, inclusive, null, false);
+    }
+
+    /**
+     * @return view of the keys greater than or equal to fromKey.
+     */
+    public SubMap tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /**
+     * Adding new pair if map does not contain given key, otherwise update value.
+     * The search starts from the last inserted node, so keys close to the previous
+     * one cost O(1) comparisons, and a key greater than all others is appended without search.
+     */
+    public void put(K key, V value) {
+        checkNullKey(key);
+        putNode(searchStart(finger, key), key, value);
+    }
+
+    /**
+     * Same as put, but the search starts from the cursor, usually the node of the previous key
+     * returned by the last putAfter. Sizes and aggregates of the ancestors are still updated in O(log n).
+     *
+     * @return node of the key.
+     * @throws IllegalArgumentException if the cursor is not a node of this map.
+     */
+    public Node<K, V> putAfter(Node<K, V> cursor, K key, V value) {
+        checkNullKey(key);
+        if (!isInTree(cursor)) {
+            throw new IllegalArgumentException("Cursor is not in the map!");
         }
+        return putNode(searchStart(cursor, key), key, value);
     }
 
     /**
@@ -86,6 +364,104 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
         return oldValue;
     }
 
+    /**
+     * Move all entries with keys greater than or equal to the key into a new map,
+     * this map keeps the lesser keys. The tree is cut along the search path and
+     * the pieces are joined back, O(log n).
+     *
+     * @return map with the same comparator and monoid holding the greater keys.
+     */
+    public RedBlackTreeMap<K, V> split(K key) {
+        checkNullKey(key);
+        Split<K, V> split = split(wholeTree(), key);
+        RedBlackTreeMap<K, V> greater = new RedBlackTreeMap<K, V>(comparator, monoid);
+        greater.setTree(split.found == null ? split.right : join(new Tree<>(null, 0), split.found, split.right));
+        setTree(split.left);
+        return greater;
+    }
+
+    /**
+     * Remove all keys k such that lo <= k <= hi. The tree is split at both bounds and the outer
+     * parts are joined, so the removed range is cut out as a whole in O(log n) regardless of its length.
+     *
+     * @return number of removed keys.
+     * @throws IllegalArgumentException if a key is null or lo is greater than hi.
+     */
+    public int removeRange(K lo, K hi) {
+        checkNullKey(lo);
+        checkNullKey(hi);
+        if (compare(lo, hi) > 0) {
+            throw new IllegalArgumentException("From key is greater than to key!");
+        }
+        Split<K, V> lower = split(wholeTree(), lo);
+        Split<K, V> upper = split(lower.right, hi);
+        int removed = sizeOf(upper.left.root) + (lower.found != null ? 1 : 0) + (upper.found != null ? 1 : 0);
+        detach(upper.left.root);
+        detach(lower.found);
+        detach(upper.found);
+        setTree(join(lower.left, upper.right));
+        return removed;
+    }
+
+    /**
+     * Remove all entries matching the predicate, which is called once per entry in ascending order of keys.
+     * The predicate is tested on all entries before the tree is changed, so if it throws the map stays as it was.
+     * Then subtrees are filtered bottom up and the kept parts are joined, so the tree is rebalanced
+     * by joins along the way instead of a fix up after every single removal, O(n) for few removals
+     * and O(n + k log n) in the worst case for k removed keys.
+     *
+     * @return number of removed keys.
+     */
+    public int removeIf(BiPredicate<? super K, ? super V> predicate) {
+        Objects.requireNonNull(predicate);
+        BitSet removed = new BitSet(size);
+        int index = 0;
+        for (Node<K, V> node = firstNode(); node != null; node = nextNode(node)) {
+            if (predicate.test(node.key, node.value)) {
+                removed.set(index);
+            }
+            index++;
+        }
+        if (removed.isEmpty()) {
+            return 0;
+        }
+        int before = size;
+        setTree(filter(wholeTree(), removed, 0));
+        return before - size;
+    }
+
+    /**
+     * Add all entries of the other map to this one, values of the other map win for common keys.
+     * Takes O(m log(n / m + 1)) for maps of sizes m <= n, large subproblems run in parallel.
+     * Nodes of the other map are moved into this one, so the other map becomes empty.
+     * If the other map has another monoid, or none, aggregates of its nodes are first
+     * recomputed with the monoid of this map, which adds O(m) for the other map of size m.
+     *
+     * @throws IllegalArgumentException if the maps have different comparators or the other map is this one.
+     */
+    public void union(RedBlackTreeMap<K, V> other) {
+        bulk(other, SetOperation.UNION);
+    }
+
+    /**
+     * Keep only the keys which are in the other map too, values of this map are kept.
+     * Takes O(m log(n / m + 1)), the other map becomes empty.
+     *
+     * @see #union(RedBlackTreeMap)
+     */
+    public void intersection(RedBlackTreeMap<K, V> other) {
+        bulk(other, SetOperation.INTERSECTION);
+    }
+
+    /**
+     * Remove the keys which are in the other map. Takes O(m log(n / m + 1)), the other map becomes empty.
+     *
+     * @see #union(RedBlackTreeMap)
+     */
+    public void difference(RedBlackTreeMap<K, V> other) {
+        bulk(other, SetOperation.DIFFERENCE);
+    }
+
     private void deleteNode(Node<K, V> node) {
         // node is always not null
         if (node.left != null && node.right != null) {
@@ -95,6 +471,20 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
             node = precursor;
         }
         Node<K, V> replace = node.left != null ? node.left : node.right;
+        if (node == finger) {
+            finger = null;
+        }
+        if (node == last) {
+            // the last node has no right child, its predecessor is the max of the left subtree or the parent
+            last = replace != null ? replace : node.parent;
+            while (replace != null && last.right != null) {
+                last = last.right;
+            }
+        }
+        // node leaves the tree, only its child stays in the sizes and aggregates of its ancestors
+        node.size = sizeOf(replace);
+        node.aggregate = aggregateOf(replace);
+        updatePath(node.parent);
         if (replace != null) {
             replace.parent = node.parent;
             if (node.parent == null) {
@@ -157,7 +547,7 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
                 Node<K, V> lBro = leftOf(parentOf(node));
                 if (getColor(lBro) == RED) {
                     rightRotate(parentOf(node));
-                    lBro = leftOf(node);
+                    lBro = leftOf(parentOf(node));
                 }
                 if (getColor(rightOf(lBro)) == BLACK && getColor(leftOf(lBro)) == BLACK) {
                     setColor(lBro, RED);
@@ -220,96 +610,279 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
     }
 
     /**
-     * Find the successor of the current node.
+     * Find the next node in the key order.
+     * If you can walk right, walk right, then fully left.
+     * Otherwise, walk up until you come from left.
      *
-     * @param node - node to delete.
-     * @return successor.
+     * @return next node or {@code null} if the node is the last one.
      */
-    private Node<K, V> successorOf(Node<K, V> node) {
-        // Since the node node has two child nodes, there is no need to judge
-        // whether the right side of the node is empty
-        Node<K, V> right = node.right;
-
-        while (right.left != null) {
-            right = right.left;
+    private Node<K, V> nextNode(Node<K, V> node) {
+        if (node.right != null) {
+            Node<K, V> next = node.right;
+            while (next.left != null) {
+                next = next.left;
+            }
+            return next;
         }
-        return right;
+        Node<K, V> child = node;
+        Node<K, V> parent = node.parent;
+        while (parent != null && parent.right == child) {
+            child = parent;
+            parent = parent.parent;
+        }
+        return parent;
     }
 
-    /**
-     * Returns this map's node for the given key, or {@code null} if the map
-     * does not contain node for the key.
-     *
-     * @return tree node.
-     * @throws IllegalArgumentException if the specified key is null.
-     */
-    private Node<K, V> getNode(K key) {
-        if (key == null) {
-            throw new IllegalArgumentException("Key cannot be null!");
-        }
+    private Node<K, V> selectNode(int index) {
         Node<K, V> node = root;
-        while (node != null) {
-            int cmp = compare(key, node.getKey());
-            if (cmp < 0)
+        while (true) {
+            int leftSize = sizeOf(node.left);
+            if (index < leftSize) {
                 node = node.left;
-            else if (cmp > 0)
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
                 node = node.right;
-            else
+            } else {
                 return node;
+            }
         }
-        return null;
+    }
+
+    private Node<K, V> firstNode() {
+        Node<K, V> node = root;
+        if (node != null) {
+            while (node.left != null) {
+                node = node.left;
+            }
+        }
+        return node;
+    }
+
+    private Node<K, V> lastNode() {
+        Node<K, V> node = root;
+        if (node != null) {
+            while (node.right != null) {
+                node = node.right;
+            }
+        }
+        return node;
     }
 
     /**
-     * Adding new pair [key:value] into the tree.
-     *
-     * @return null if the key already exists. And a new node if the key is new.
+     * @return node with the least key greater than (or equal to, if inclusive is true) the key.
      */
-    private Node<K, V> putNode(K key, V value) {
-        int cmp;
-        Node<K, V> tail = root;
-        Node<K, V> parent;
-
-        do {
-            parent = tail;
-            cmp = compare(key, tail.getKey());
+    private Node<K, V> ceilingNode(K key, boolean inclusive) {
+        checkNullKey(key);
+        Node<K, V> node = root;
+        Node<K, V> ceiling = null;
+        while (node != null) {
+            int cmp = compare(key, node.key);
+            if (cmp == 0 && inclusive) {
+                return node;
+            }
             if (cmp < 0) {
-                tail = tail.left;
-            } else if (cmp > 0) {
-                tail = tail.right;
+                ceiling = node;
+                node = node.left;
             } else {
-                tail.value = value;
-                return null;
+                node = node.right;
             }
-        } while (tail != null);
-        Node<K, V> fresh = new Node<>(key, value, parent);
-        if (cmp < 0) {
-            parent.left = fresh;
-        } else {
-            parent.right = fresh;
         }
-        return fresh;
+        return ceiling;
     }
 
     /**
-     * Compares objects in natural order if the comparator is null,
-     * otherwise use comparator.
-     *
-     * @return -1 if a < b, 1 if a > b, 0 if a == b.
+     * @return node with the greatest key less than (or equal to, if inclusive is true) the key.
      */
-    private int compare(K a, K b) {
-        return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+    private Node<K, V> floorNode(K key, boolean inclusive) {
+        checkNullKey(key);
+        Node<K, V> node = root;
+        Node<K, V> floor = null;
+        while (node != null) {
+            int cmp = compare(key, node.key);
+            if (cmp == 0 && inclusive) {
+                return node;
+            }
+            if (cmp > 0) {
+                floor = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return floor;
     }
 
-    private void balanceAfterPut(Node<K, V> freshNode) {
-        freshNode.color = RED;
+    private K keyOrNull(Node<K, V> node) {
+        return node == null ? null : node.key;
+    }
 
-        while (freshNode != root && freshNode.parent != null && freshNode.parent.color == RED) {
-            Node<K, V> father = freshNode.parent;
-            Node<K, V> grandFather = father.parent;
+    private K keyOrThrow(Node<K, V> node) {
+        if (node == null) {
+            throw new NoSuchElementException("Map is empty!");
+        }
+        return node.key;
+    }
 
-            if (grandFather != null && grandFather.left == father) {
-                Node<K, V> uncle = grandFather.right;
+    private void checkNullKey(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null!");
+        }
+    }
+
+    /**
+     * Same as getNode, but the search starts from the finger. The finger is only read here, never moved.
+     */
+    private Node<K, V> fingerNode(K key) {
+        checkNullKey(key);
+        Node<K, V> node = searchStart(finger, key);
+        while (node != null) {
+            int cmp = compare(key, node.key);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Climb from the node to the lowest ancestor whose subtree covers the key range around the key,
+     * a search down from there finds the key or the place for it. Going up through a left child
+     * link the parent bounds the subtree from above, so only such links take a comparison.
+     *
+     * @return node to search the key from, the root if the node is null.
+     */
+    private Node<K, V> searchStart(Node<K, V> node, K key) {
+        if (node == null) {
+            return root;
+        }
+        int cmp = compare(key, node.key);
+        if (cmp > 0) {
+            while (node.parent != null && (node == node.parent.right || compare(key, node.parent.key) >= 0)) {
+                node = node.parent;
+            }
+        } else if (cmp < 0) {
+            while (node.parent != null && (node == node.parent.left || compare(key, node.parent.key) <= 0)) {
+                node = node.parent;
+            }
+        }
+        return node;
+    }
+
+    private boolean isInTree(Node<K, V> node) {
+        if (node == null) {
+            return false;
+        }
+        while (node.parent != null) {
+            node = node.parent;
+        }
+        return node == root;
+    }
+
+    /**
+     * Returns this map's node for the given key, or {@code null} if the map
+     * does not contain node for the key.
+     *
+     * @return tree node.
+     * @throws IllegalArgumentException if the specified key is null.
+     */
+    private Node<K, V> getNode(K key) {
+        checkNullKey(key);
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = compare(key, node.getKey());
+            if (cmp < 0)
+                node = node.left;
+            else if (cmp > 0)
+                node = node.right;
+            else
+                return node;
+        }
+        return null;
+    }
+
+    /**
+     * Adding new pair [key:value] into the tree, searching from the start node down.
+     * The start node must be the root or come from searchStart.
+     *
+     * @return node of the key, the finger is moved to it.
+     */
+    private Node<K, V> putNode(Node<K, V> start, K key, V value) {
+        if (root == null) {
+            root = new Node<>(key, value, null);
+            size++;
+            finger = root;
+            last = root;
+            return root;
+        }
+        if (last == null) {
+            last = lastNode();
+        }
+        int cmp;
+        Node<K, V> tail;
+        Node<K, V> parent;
+
+        if (compare(key, last.key) > 0) {
+            // ascending append, the new node is the right child of the last one
+            parent = last;
+            cmp = 1;
+        } else {
+            tail = start;
+            do {
+                parent = tail;
+                cmp = compare(key, tail.getKey());
+                if (cmp < 0) {
+                    tail = tail.left;
+                } else if (cmp > 0) {
+                    tail = tail.right;
+                } else {
+                    tail.value = value;
+                    if (monoid != null) {
+                        updatePath(tail);
+                    }
+                    finger = tail;
+                    return tail;
+                }
+            } while (tail != null);
+        }
+        Node<K, V> fresh = new Node<>(key, value, parent);
+        if (cmp < 0) {
+            parent.left = fresh;
+        } else {
+            parent.right = fresh;
+            if (parent == last) {
+                last = fresh;
+            }
+        }
+        updatePath(parent);
+        balanceAfterPut(fresh);
+        size++;
+        finger = fresh;
+        return fresh;
+    }
+
+    /**
+     * Compares objects in natural order if the comparator is null,
+     * otherwise use comparator.
+     *
+     * @return -1 if a < b, 1 if a > b, 0 if a == b.
+     */
+    private int compare(K a, K b) {
+        return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+    }
+
+    private void balanceAfterPut(Node<K, V> freshNode) {
+        freshNode.color = RED;
+
+        while (freshNode != root && freshNode.parent != null && freshNode.parent.color == RED) {
+            Node<K, V> father = freshNode.parent;
+            Node<K, V> grandFather = father.parent;
+
+            if (grandFather != null && grandFather.left == father) {
+                Node<K, V> uncle = grandFather.right;
 
                 // If node is null then it has BLACK color
                 if (uncle != null && uncle.color == RED) {
@@ -370,6 +943,8 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
             }
             right.left = node;
             node.parent = right;
+            update(node);
+            update(right);
         }
     }
 
@@ -397,6 +972,380 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
         }
         left.right = node;
         node.parent = left;
+        update(node);
+        update(left);
+    }
+
+    private int sizeOf(Node<K, V> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private V aggregateOf(Node<K, V> node) {
+        if (monoid == null) {
+            return null;
+        }
+        return node == null ? monoid.identity() : node.aggregate;
+    }
+
+    /**
+     * Recompute size and aggregate of the node from its children.
+     */
+    private void update(Node<K, V> node) {
+        node.size = sizeOf(node.left) + sizeOf(node.right) + 1;
+        if (monoid != null) {
+            node.aggregate = monoid.combine(monoid.combine(aggregateOf(node.left), node.value), aggregateOf(node.right));
+        }
+    }
+
+    /**
+     * Recompute aggregates of the whole subtree bottom up, used for nodes taken from a map with another monoid.
+     */
+    private void reaggregate(Node<K, V> node) {
+        if (node == null) {
+            return;
+        }
+        reaggregate(node.left);
+        reaggregate(node.right);
+        node.aggregate = monoid == null ? null
+            : monoid.combine(monoid.combine(aggregateOf(node.left), node.value), aggregateOf(node.right));
+    }
+
+    /**
+     * Recompute the node and all its ancestors bottom up.
+     */
+    private void updatePath(Node<K, V> node) {
+        for (; node != null; node = node.parent) {
+            update(node);
+        }
+    }
+
+    /**
+     * @return aggregate of the keys not less than lo in the subtree.
+     */
+    private V aggregateFrom(Node<K, V> node, K lo) {
+        V result = monoid.identity();
+        while (node != null) {
+            if (compare(node.key, lo) >= 0) {
+                // the node and its right subtree go before everything collected so far
+                result = monoid.combine(monoid.combine(node.value, aggregateOf(node.right)), result);
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return aggregate of the keys not greater than hi in the subtree.
+     */
+    private V aggregateTo(Node<K, V> node, K hi) {
+        V result = monoid.identity();
+        while (node != null) {
+            if (compare(node.key, hi) <= 0) {
+                result = monoid.combine(result, monoid.combine(aggregateOf(node.left), node.value));
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replace content of the map by a perfectly balanced tree of the sorted entries.
+     * Nodes of the deepest level are red if that level is incomplete, all others are black.
+     */
+    private void buildFromSorted(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries, int count) {
+        int redLevel = 31 - Integer.numberOfLeadingZeros(count + 1);
+        SortedEntries sorted = new SortedEntries(entries);
+        root = buildFromSorted(0, 0, count - 1, redLevel, sorted);
+        size = count;
+    }
+
+    private Node<K, V> buildFromSorted(int level, int lo, int hi, int redLevel, SortedEntries entries) {
+        if (hi < lo) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node<K, V> left = buildFromSorted(level + 1, lo, mid - 1, redLevel, entries);
+        Node<K, V> middle = entries.next();
+        if (level == redLevel) {
+            middle.color = RED;
+        }
+        middle.left = left;
+        if (left != null) {
+            left.parent = middle;
+        }
+        Node<K, V> right = buildFromSorted(level + 1, mid + 1, hi, redLevel, entries);
+        middle.right = right;
+        if (right != null) {
+            right.parent = middle;
+        }
+        update(middle);
+        return middle;
+    }
+
+    private void bulk(RedBlackTreeMap<K, V> other, SetOperation operation) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot combine the map with itself!");
+        }
+        if (!Objects.equals(comparator, other.comparator)) {
+            throw new IllegalArgumentException("Maps have different comparators!");
+        }
+        if (monoid != other.monoid) {
+            // subtrees of the other map are attached as they are, so they must be aggregated by this monoid
+            reaggregate(other.root);
+        }
+        setTree(new SetTask(operation, wholeTree(), other.wholeTree()).invoke());
+        other.clear();
+    }
+
+    /**
+     * Recursive step of union, intersection and difference: split the second tree by the root
+     * of the first one, combine the left parts and the right parts, and join the results.
+     * Trees are detached from the map, so the halves can be combined by different threads.
+     */
+    private Tree<K, V> combine(SetOperation operation, Tree<K, V> first, Tree<K, V> second) {
+        if (first.root == null) {
+            return operation == SetOperation.UNION ? second : first;
+        }
+        if (second.root == null) {
+            return operation == SetOperation.INTERSECTION ? second : first;
+        }
+        boolean parallel = first.root.size + second.root.size >= PARALLEL_THRESHOLD;
+        Node<K, V> middle = first.root;
+        int childHeight = first.blackHeight - (middle.color == BLACK ? 1 : 0);
+        Tree<K, V> firstLeft = new Tree<>(middle.left, childHeight);
+        Tree<K, V> firstRight = new Tree<>(middle.right, childHeight);
+        Split<K, V> split = split(second, middle.key);
+
+        Tree<K, V> left;
+        Tree<K, V> right;
+        if (parallel) {
+            SetTask task = new SetTask(operation, firstLeft, split.left);
+            task.fork();
+            right = combine(operation, firstRight, split.right);
+            left = task.join();
+        } else {
+            left = combine(operation, firstLeft, split.left);
+            right = combine(operation, firstRight, split.right);
+        }
+
+        boolean found = split.found != null;
+        if (operation == SetOperation.UNION && found) {
+            middle.value = split.found.value;
+        }
+        boolean keep = operation == SetOperation.UNION || found == (operation == SetOperation.INTERSECTION);
+        return keep ? join(left, middle, right) : join(left, right);
+    }
+
+    /**
+     * @param removed - in-order indexes of the nodes to remove.
+     * @param first   - in-order index of the first node of the tree.
+     */
+    private Tree<K, V> filter(Tree<K, V> tree, BitSet removed, int first) {
+        Node<K, V> node = tree.root;
+        if (node == null) {
+            return tree;
+        }
+        int nextRemoved = removed.nextSetBit(first);
+        if (nextRemoved < 0 || nextRemoved >= first + node.size) {
+            // nothing to remove in this subtree
+            return tree;
+        }
+        int index = first + sizeOf(node.left);
+        int childHeight = tree.blackHeight - (node.color == BLACK ? 1 : 0);
+        Tree<K, V> left = filter(new Tree<>(node.left, childHeight), removed, first);
+        Tree<K, V> right = filter(new Tree<>(node.right, childHeight), removed, index + 1);
+        if (removed.get(index)) {
+            detach(node);
+            return join(left, right);
+        }
+        return join(left, node, right);
+    }
+
+    /**
+     * Cut the parent link of a subtree root removed from the map, so its nodes are not taken for nodes of the map.
+     */
+    private static <K, V> void detach(Node<K, V> node) {
+        if (node != null) {
+            node.parent = null;
+        }
+    }
+
+    /**
+     * Split the tree by the key into keys less than it, the node of the key and keys greater than it.
+     */
+    private Split<K, V> split(Tree<K, V> tree, K key) {
+        Node<K, V> node = tree.root;
+        if (node == null) {
+            return new Split<>(tree, null, tree);
+        }
+        int childHeight = tree.blackHeight - (node.color == BLACK ? 1 : 0);
+        Tree<K, V> left = new Tree<>(node.left, childHeight);
+        Tree<K, V> right = new Tree<>(node.right, childHeight);
+        int cmp = compare(key, node.key);
+        if (cmp == 0) {
+            return new Split<>(left, node, right);
+        }
+        if (cmp < 0) {
+            Split<K, V> split = split(left, key);
+            return new Split<>(split.left, split.found, join(split.right, node, right));
+        }
+        Split<K, V> split = split(right, key);
+        return new Split<>(join(left, node, split.left), split.found, split.right);
+    }
+
+    /**
+     * Join two trees where all keys of the left one are less than all keys of the right one.
+     */
+    private Tree<K, V> join(Tree<K, V> left, Tree<K, V> right) {
+        if (left.root == null) {
+            return right;
+        }
+        Split<K, V> split = splitLast(left);
+        return join(split.left, split.found, right);
+    }
+
+    /**
+     * @return the tree without its last node and that node.
+     */
+    private Split<K, V> splitLast(Tree<K, V> tree) {
+        Node<K, V> node = tree.root;
+        int childHeight = tree.blackHeight - (node.color == BLACK ? 1 : 0);
+        Tree<K, V> left = new Tree<>(node.left, childHeight);
+        if (node.right == null) {
+            return new Split<>(left, node, null);
+        }
+        Split<K, V> split = splitLast(new Tree<>(node.right, childHeight));
+        return new Split<>(join(left, node, split.left), split.found, null);
+    }
+
+    /**
+     * Join two trees and the middle node where left keys < middle key < right keys.
+     * The middle node goes down the spine of the higher tree to the level of the lower one,
+     * so it takes O(difference of black heights + 1).
+     *
+     * @return valid tree, its root can be red.
+     */
+    private Tree<K, V> join(Tree<K, V> left, Node<K, V> middle, Tree<K, V> right) {
+        Node<K, V> l = left.root;
+        Node<K, V> r = right.root;
+        int leftHeight = left.blackHeight;
+        int rightHeight = right.blackHeight;
+        // joinRight and joinLeft expect black roots
+        if (getColor(l) == RED) {
+            l.color = BLACK;
+            leftHeight++;
+        }
+        if (getColor(r) == RED) {
+            r.color = BLACK;
+            rightHeight++;
+        }
+        if (leftHeight > rightHeight) {
+            Node<K, V> joined = joinRight(l, leftHeight, middle, r, rightHeight);
+            if (joined.color == RED && getColor(joined.right) == RED) {
+                joined.color = BLACK;
+                leftHeight++;
+            }
+            return new Tree<>(joined, leftHeight);
+        }
+        if (rightHeight > leftHeight) {
+            Node<K, V> joined = joinLeft(l, leftHeight, middle, r, rightHeight);
+            if (joined.color == RED && getColor(joined.left) == RED) {
+                joined.color = BLACK;
+                rightHeight++;
+            }
+            return new Tree<>(joined, rightHeight);
+        }
+        return new Tree<>(link(l, middle, r, RED), leftHeight);
+    }
+
+    /**
+     * Go down the right spine of the left tree to a black node with the black height of the right tree
+     * and put the middle node there as red. Red-red violation is fixed by rotation on the way up.
+     *
+     * @return subtree with the black height of the left tree.
+     */
+    private Node<K, V> joinRight(Node<K, V> l, int leftHeight, Node<K, V> middle, Node<K, V> r, int rightHeight) {
+        if (getColor(l) == BLACK && leftHeight == rightHeight) {
+            return link(l, middle, r, RED);
+        }
+        Node<K, V> right = joinRight(l.right, leftHeight - (l.color == BLACK ? 1 : 0), middle, r, rightHeight);
+        link(l.left, l, right, l.color);
+        if (l.color == BLACK && getColor(right) == RED && getColor(right.right) == RED) {
+            right.right.color = BLACK;
+            return rotateLeftDetached(l);
+        }
+        return l;
+    }
+
+    /**
+     * Mirror of {@link #joinRight}.
+     */
+    private Node<K, V> joinLeft(Node<K, V> l, int leftHeight, Node<K, V> middle, Node<K, V> r, int rightHeight) {
+        if (getColor(r) == BLACK && leftHeight == rightHeight) {
+            return link(l, middle, r, RED);
+        }
+        Node<K, V> left = joinLeft(l, leftHeight, middle, r.left, rightHeight - (r.color == BLACK ? 1 : 0));
+        link(left, r, r.right, r.color);
+        if (r.color == BLACK && getColor(left) == RED && getColor(left.left) == RED) {
+            left.left.color = BLACK;
+            return rotateRightDetached(r);
+        }
+        return r;
+    }
+
+    /**
+     * Left rotation of a subtree which is not attached to the map, colors are kept.
+     */
+    private Node<K, V> rotateLeftDetached(Node<K, V> node) {
+        Node<K, V> pivot = node.right;
+        link(node.left, node, pivot.left, node.color);
+        return link(node, pivot, pivot.right, pivot.color);
+    }
+
+    private Node<K, V> rotateRightDetached(Node<K, V> node) {
+        Node<K, V> pivot = node.left;
+        link(pivot.right, node, node.right, node.color);
+        return link(pivot.left, pivot, node, pivot.color);
+    }
+
+    /**
+     * Make left and right the children of the node and recompute it.
+     */
+    private Node<K, V> link(Node<K, V> left, Node<K, V> node, Node<K, V> right, boolean color) {
+        node.left = left;
+        node.right = right;
+        if (left != null) {
+            left.parent = node;
+        }
+        if (right != null) {
+            right.parent = node;
+        }
+        node.color = color;
+        update(node);
+        return node;
+    }
+
+    private Tree<K, V> wholeTree() {
+        int blackHeight = 0;
+        for (Node<K, V> node = root; node != null; node = node.left) {
+            blackHeight += node.color == BLACK ? 1 : 0;
+        }
+        return new Tree<>(root, blackHeight);
+    }
+
+    private void setTree(Tree<K, V> tree) {
+        finger = null;
+        last = null;
+        root = tree.root;
+        if (root != null) {
+            root.parent = null;
+            root.color = BLACK;
+        }
+        size = sizeOf(root);
     }
 
     /**
@@ -406,6 +1355,8 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
     public void clear() {
         size = 0;
         root = null;
+        finger = null;
+        last = null;
     }
 
     public boolean isEmpty() {
@@ -418,13 +1369,66 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
 
     @Override
     public Iterator<Node<K, V>> iterator() {
-        return new InorderTreeIterator(root);
+        return new InorderTreeIterator(firstNode());
+    }
+
+    /**
+     * Spliterator which covers a range of key indexes and splits it in halves, the start node
+     * of each part is found by subtree sizes in O(log n). Sizes of all parts are exact.
+     * The map must not be changed while the spliterator is in use.
+     */
+    @Override
+    public Spliterator<Node<K, V>> spliterator() {
+        Comparator<Node<K, V>> byKey = (a, b) -> compare(a.key, b.key);
+        return new TreeSpliterator<>(0, size, node -> node, byKey, ENTRY_CHARACTERISTICS);
+    }
+
+    /**
+     * @return sequential stream of entries in key order.
+     */
+    public Stream<Map.Entry<K, V>> stream() {
+        return StreamSupport.stream(entrySpliterator(), false);
+    }
+
+    /**
+     * @return parallel stream of entries, the tree is split between threads by key indexes.
+     */
+    public Stream<Map.Entry<K, V>> parallelStream() {
+        return StreamSupport.stream(entrySpliterator(), true);
+    }
+
+    /**
+     * @return sequential stream of keys in ascending order, use {@link Stream#parallel()} to split it.
+     */
+    public Stream<K> keyStream() {
+        return StreamSupport.stream(new TreeSpliterator<>(0, size, node -> node.key, comparator,
+            ENTRY_CHARACTERISTICS), false);
+    }
+
+    /**
+     * @return sequential stream of values in key order, use {@link Stream#parallel()} to split it.
+     */
+    public Stream<V> valueStream() {
+        return StreamSupport.stream(new TreeSpliterator<>(0, size, node -> node.value, null,
+            Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED), false);
+    }
+
+    private Spliterator<Map.Entry<K, V>> entrySpliterator() {
+        Comparator<Map.Entry<K, V>> byKey = (a, b) -> compare(a.getKey(), b.getKey());
+        return new TreeSpliterator<>(0, size, node -> node, byKey, ENTRY_CHARACTERISTICS);
     }
 
     public Comparator<? super K> getComparator() {
         return comparator;
     }
 
+    /**
+     * Root for the structures built on top of the map in this package, which walk the tree by themselves.
+     */
+    Node<K, V> getRoot() {
+        return root;
+    }
+
     /**
      * WARNING! USED ONLY FOR TEST PURPOSE.
      *
@@ -446,11 +1450,52 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
         inorderTraversal(node.right, stringBuffer);
     }
 
+    /**
+     * WARNING! USED ONLY FOR TEST PURPOSE.
+     *
+     * @return {@code true} if the root is black, no red node has a red child, all paths have
+     * the same number of black nodes, and parent links, subtree sizes, aggregates, child key order and fingers are consistent.
+     */
+    boolean isValidRedBlackTree() {
+        return getColor(root) == BLACK && (root == null || root.parent == null)
+            && blackHeight(root) >= 0 && sizeOf(root) == size
+            && (finger == null || isInTree(finger)) && (last == null || last == lastNode());
+    }
+
+    // -1 if the subtree is not valid
+    private int blackHeight(Node<K, V> node) {
+        if (node == null) {
+            return 0;
+        }
+        if (node.color == RED && (getColor(node.left) == RED || getColor(node.right) == RED)) {
+            return -1;
+        }
+        if ((node.left != null && (node.left.parent != node || compare(node.left.key, node.key) >= 0))
+            || (node.right != null && (node.right.parent != node || compare(node.right.key, node.key) <= 0))
+            || node.size != sizeOf(node.left) + sizeOf(node.right) + 1) {
+            return -1;
+        }
+        if (monoid != null && !Objects.equals(node.aggregate,
+            monoid.combine(monoid.combine(aggregateOf(node.left), node.value), aggregateOf(node.right)))) {
+            return -1;
+        }
+        int left = blackHeight(node.left);
+        int right = blackHeight(node.right);
+        if (left < 0 || left != right) {
+            return -1;
+        }
+        return left + (node.color == BLACK ? 1 : 0);
+    }
+
     // New node is always black
-    static final class Node<K, V> {
+    static final class Node<K, V> implements Map.Entry<K, V> {
         private K key;
         private V value;
         private boolean color;
+        // number of nodes in the subtree of this node
+        private int size;
+        // combined values of the subtree, kept only if the map has a monoid
+        private V aggregate;
         private Node<K, V> parent;
         private Node<K, V> left;
         private Node<K, V> right;
@@ -459,6 +1504,8 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
             this.key = key;
             this.value = value;
             this.color = BLACK;
+            this.size = 1;
+            this.aggregate = value;
             this.parent = parent;
         }
 
@@ -469,6 +1516,127 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
         public V getValue() {
             return value;
         }
+
+        Node<K, V> getLeft() {
+            return left;
+        }
+
+        Node<K, V> getRight() {
+            return right;
+        }
+
+        /**
+         * @return combined values of the subtree if the map has a monoid.
+         */
+        V getAggregate() {
+            return aggregate;
+        }
+
+        /**
+         * Values are changed only through the map.
+         *
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("Use put to change the value!");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    private enum SetOperation {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+
+    /**
+     * Subtree detached from the map with its black height, the number of black nodes on any path to null.
+     */
+    private static final class Tree<K, V> {
+        private final Node<K, V> root;
+        private final int blackHeight;
+
+        Tree(Node<K, V> root, int blackHeight) {
+            this.root = root;
+            this.blackHeight = blackHeight;
+        }
+    }
+
+    /**
+     * Parts of a tree split by a key, found is the node of the key or {@code null}.
+     */
+    private static final class Split<K, V> {
+        private final Tree<K, V> left;
+        private final Node<K, V> found;
+        private final Tree<K, V> right;
+
+        Split(Tree<K, V> left, Node<K, V> found, Tree<K, V> right) {
+            this.left = left;
+            this.found = found;
+            this.right = right;
+        }
+    }
+
+    private final class SetTask extends RecursiveTask<Tree<K, V>> {
+        private static final long serialVersionUID = 1L;
+
+        private final SetOperation operation;
+        private final Tree<K, V> first;
+        private final Tree<K, V> second;
+
+        SetTask(SetOperation operation, Tree<K, V> first, Tree<K, V> second) {
+            this.operation = operation;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        protected Tree<K, V> compute() {
+            return combine(operation, first, second);
+        }
+    }
+
+    /**
+     * Turns sorted entries into fresh nodes and checks the order of keys.
+     */
+    private final class SortedEntries {
+        private final Iterator<? extends Map.Entry<? extends K, ? extends V>> entries;
+        private K previous;
+
+        SortedEntries(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+            this.entries = entries;
+        }
+
+        Node<K, V> next() {
+            if (!entries.hasNext()) {
+                throw new IllegalArgumentException("Not enough entries!");
+            }
+            Map.Entry<? extends K, ? extends V> entry = entries.next();
+            K key = entry.getKey();
+            checkNullKey(key);
+            if (previous != null && compare(previous, key) >= 0) {
+                throw new IllegalArgumentException("Keys are not sorted: " + previous + " before " + key);
+            }
+            previous = key;
+            return new Node<>(key, entry.getValue(), null);
+        }
     }
 
     /**
@@ -478,15 +1646,8 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
         protected Node<K, V> next;
         protected Node<K, V> lastReturned;
 
-        public TreeIterator(Node<K, V> root) {
-            this.next = root;
-
-            if (next == null) {
-                return;
-            }
-            while (next.left != null) {
-                next = next.left;
-            }
+        public TreeIterator(Node<K, V> first) {
+            this.next = first;
         }
 
         @Override
@@ -494,6 +1655,17 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
             return next != null;
         }
 
+        protected Node<K, V> nextEntry() {
+            Node<K, V> e = next;
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            next = nextNode(e);
+            lastReturned = e;
+            return e;
+        }
+
         @Override
         public void remove() {
             if (lastReturned == null) {
@@ -506,40 +1678,225 @@ public class RedBlackTreeMap<K extends Comparable<K>, V> implements Iterable<Red
     }
 
     final class InorderTreeIterator extends TreeIterator<RedBlackTreeMap.Node<K, V>> {
-        public InorderTreeIterator(Node<K, V> root) {
-            super(root);
+        public InorderTreeIterator(Node<K, V> first) {
+            super(first);
         }
 
         @Override
         public Node<K, V> next() {
-            Node<K, V> e = next;
+            return nextEntry();
+        }
+    }
 
-            if (e == null) {
-                throw new NoSuchElementException();
+    /**
+     * Iterator which stops at the upper bound of the sub map.
+     */
+    final class RangeIterator extends TreeIterator<RedBlackTreeMap.Node<K, V>> {
+        private final SubMap range;
+
+        public RangeIterator(Node<K, V> first, SubMap range) {
+            super(first);
+            this.range = range;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && !range.tooHigh(next.key);
+        }
+
+        @Override
+        public Node<K, V> next() {
+            return nextEntry();
+        }
+    }
+
+    /**
+     * Spliterator over the nodes with indexes from index inclusive to fence exclusive in key order.
+     * The first node is found lazily, then the walk goes by parent links.
+     */
+    final class TreeSpliterator<T> implements Spliterator<T> {
+        private final Function<Node<K, V>, T> mapper;
+        private final Comparator<? super T> order;
+        private final int characteristics;
+        private int index;
+        private final int fence;
+        private Node<K, V> next;
+
+        TreeSpliterator(int index, int fence, Function<Node<K, V>, T> mapper, Comparator<? super T> order,
+                        int characteristics) {
+            this.index = index;
+            this.fence = fence;
+            this.mapper = mapper;
+            this.order = order;
+            this.characteristics = characteristics;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= fence) {
+                return false;
             }
-            // If you can walk right, walk right, then fully left.
-            // otherwise, walk up until you come from left.
-            if(next.right != null) {
-                next = next.right;
-                while (next.left != null)
-                    next = next.left;
-                lastReturned = e;
-                return e;
-            }
-
-            while(true) {
-                if(next.parent == null) {
-                    next = null;
-                    lastReturned = e;
-                    return e;
-                }
-                if(next.parent.left == next) {
-                    next = next.parent;
-                    lastReturned = e;
-                    return e;
-                }
-                next = next.parent;
+            if (next == null) {
+                next = selectNode(index);
+            }
+            Node<K, V> node = next;
+            next = nextNode(node);
+            index++;
+            action.accept(mapper.apply(node));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (index >= fence) {
+                return;
+            }
+            Node<K, V> node = next == null ? selectNode(index) : next;
+            for (; index < fence; index++) {
+                Node<K, V> current = node;
+                node = nextNode(node);
+                action.accept(mapper.apply(current));
+            }
+            next = node;
+        }
+
+        /**
+         * Give away the first half of the remaining nodes, this spliterator keeps the second half.
+         */
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            TreeSpliterator<T> prefix = new TreeSpliterator<>(index, mid, mapper, order, characteristics);
+            prefix.next = next;
+            index = mid;
+            next = null;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            if ((characteristics & Spliterator.SORTED) == 0) {
+                throw new IllegalStateException();
+            }
+            return order;
+        }
+    }
+
+    /**
+     * View of the key range of the map. Bound is {@code null} when the range is unbounded from that side.
+     */
+    public final class SubMap implements Iterable<RedBlackTreeMap.Node<K, V>> {
+        private final K lo;
+        private final boolean loInclusive;
+        private final K hi;
+        private final boolean hiInclusive;
+
+        private SubMap(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        /**
+         * @return value if the range contains given key, {@code null} otherwise.
+         */
+        public V get(K key) {
+            return inRange(key) ? RedBlackTreeMap.this.get(key) : null;
+        }
+
+        public boolean containsKey(K key) {
+            return inRange(key) && RedBlackTreeMap.this.containsKey(key);
+        }
+
+        /**
+         * @throws IllegalArgumentException if the key is out of the range.
+         */
+        public void put(K key, V value) {
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("Key is out of range!");
+            }
+            RedBlackTreeMap.this.put(key, value);
+        }
+
+        public V remove(K key) {
+            return inRange(key) ? RedBlackTreeMap.this.remove(key) : null;
+        }
+
+        /**
+         * @throws NoSuchElementException if the range is empty.
+         */
+        public K firstKey() {
+            return keyOrThrow(lowestNode());
+        }
+
+        /**
+         * @throws NoSuchElementException if the range is empty.
+         */
+        public K lastKey() {
+            return keyOrThrow(highestNode());
+        }
+
+        public boolean isEmpty() {
+            return lowestNode() == null;
+        }
+
+        /**
+         * @return number of keys in the range, computed by ranks of the bounds in O(log n).
+         */
+        public int getSize() {
+            int from = lo == null ? 0 : rank(lo) + (!loInclusive && getNode(lo) != null ? 1 : 0);
+            int to = hi == null ? size : rank(hi) + (hiInclusive && getNode(hi) != null ? 1 : 0);
+            return Math.max(0, to - from);
+        }
+
+        @Override
+        public Iterator<Node<K, V>> iterator() {
+            return new RangeIterator(lowestNode(), this);
+        }
+
+        private Node<K, V> lowestNode() {
+            Node<K, V> node = lo == null ? firstNode() : ceilingNode(lo, loInclusive);
+            return node == null || tooHigh(node.key) ? null : node;
+        }
+
+        private Node<K, V> highestNode() {
+            Node<K, V> node = hi == null ? lastNode() : floorNode(hi, hiInclusive);
+            return node == null || tooLow(node.key) ? null : node;
+        }
+
+        private boolean inRange(K key) {
+            checkNullKey(key);
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        private boolean tooLow(K key) {
+            if (lo == null) {
+                return false;
+            }
+            int cmp = compare(key, lo);
+            return cmp < 0 || (cmp == 0 && !loInclusive);
+        }
+
+        private boolean tooHigh(K key) {
+            if (hi == null) {
+                return false;
             }
+            int cmp = compare(key, hi);
+            return cmp > 0 || (cmp == 0 && !hiInclusive);
         }
     }
 }
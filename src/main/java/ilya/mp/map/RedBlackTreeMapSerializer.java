@@ -0,0 +1,137 @@
+package ilya.mp.map;
+
+import ilya.mp.priority_queue.ElementSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Binary format of RedBlackTreeMap: a header with the number of entries followed by
+ * the entries in ascending order of keys, each written by the key and value serializers.
+ * Entries are streamed through a buffer in both directions, and since they come sorted
+ * the loader builds a balanced tree in O(n) with one comparison per entry to check the order and without rotations.
+ */
+public class RedBlackTreeMapSerializer<K extends Comparable<K>, V> {
+    private static final int MAGIC = 0x52425431;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ElementSerializer<K> keySerializer;
+    private final ElementSerializer<V> valueSerializer;
+
+    /**
+     * @throws IllegalArgumentException in case if a serializer is null.
+     */
+    public RedBlackTreeMapSerializer(ElementSerializer<K> keySerializer, ElementSerializer<V> valueSerializer) {
+        if (keySerializer == null || valueSerializer == null) {
+            throw new IllegalArgumentException("Serializer cannot be null!");
+        }
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+    }
+
+    /**
+     * Write all entries of the map to the channel. The channel is not closed.
+     */
+    public void write(RedBlackTreeMap<K, V> map, WritableByteChannel channel) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeInt(map.getSize());
+        for (RedBlackTreeMap.Node<K, V> node : map) {
+            keySerializer.write(node.getKey(), out);
+            valueSerializer.write(node.getValue(), out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Same as {@link #read(ReadableByteChannel, Comparator, Monoid)} for natural order of keys without monoid.
+     */
+    public RedBlackTreeMap<K, V> read(ReadableByteChannel channel) throws IOException {
+        return read(channel, null, null);
+    }
+
+    /**
+     * Load the map written by {@link #write(RedBlackTreeMap, WritableByteChannel)} in O(n).
+     * Input is read ahead through a buffer, so the map must be the rest of the channel. The channel is not closed.
+     *
+     * @param comparator - comparator the map was written with, natural order if null.
+     * @param monoid     - monoid of the loaded map, may be null.
+     * @throws IOException if the channel does not contain a saved map or ends too early.
+     */
+    public RedBlackTreeMap<K, V> read(ReadableByteChannel channel, Comparator<? super K> comparator,
+                                      Monoid<V> monoid) throws IOException {
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Channel does not contain a saved map");
+        }
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Negative size of the saved map: " + size);
+        }
+        try {
+            return RedBlackTreeMap.fromSorted(new EntryReader(in, size), size, comparator, monoid);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Decodes entries one by one as the tree builder asks for them, the entry object is reused
+     * because the builder copies the key and value into a new node.
+     */
+    private final class EntryReader implements Iterator<Map.Entry<K, V>>, Map.Entry<K, V> {
+        private final DataInputStream in;
+        private int remaining;
+        private K key;
+        private V value;
+
+        EntryReader(DataInputStream in, int size) {
+            this.in = in;
+            this.remaining = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            try {
+                key = keySerializer.read(in);
+                value = valueSerializer.read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            remaining--;
+            return this;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package ilya.mp.priority_queue;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread safe unbounded PriorityQueue on which consumers can block until an element is available.
+ * Every put wakes up at most one waiting consumer, so consumers are not woken up in a herd.
+ */
+public class BlockingPriorityQueue<T extends Comparable<T>> {
+    private final PriorityQueue<T> queue;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+
+    public BlockingPriorityQueue() {
+        this.queue = new PriorityQueue<>();
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+    }
+
+    /**
+     * Add new element and signal one waiting consumer. Never blocks since queue is unbounded.
+     *
+     * @param element - new element.
+     * @throws IllegalArgumentException in case if element is null.
+     */
+    public void put(T element) {
+        if (element == null) {
+            throw new IllegalArgumentException("Element cannot be null!");
+        }
+        lock.lock();
+        try {
+            queue.insert(element);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove max element, waiting until one is available.
+     *
+     * @return max element.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public T take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+            return popMaxAndPassSignal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove max element, waiting up to the specified time until one is available.
+     *
+     * @return max element or {@code null} if the time elapsed before an element is available.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return popMaxAndPassSignal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove max element without waiting.
+     *
+     * @return max element or {@code null} if queue is empty.
+     */
+    public T poll() {
+        lock.lock();
+        try {
+            return queue.isEmpty() ? null : popMaxAndPassSignal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove up to maxElements elements in descending order and add them
+     * to the collection under a single lock acquisition.
+     *
+     * @return number of transferred elements.
+     * @throws IllegalArgumentException in case if collection is null or maxElements is negative.
+     */
+    public int drainTo(Collection<? super T> collection, int maxElements) {
+        if (collection == null) {
+            throw new IllegalArgumentException("Collection cannot be null!");
+        }
+        if (maxElements < 0) {
+            throw new IllegalArgumentException("Max elements cannot be negative!");
+        }
+        lock.lock();
+        try {
+            int count = Math.min(maxElements, queue.size());
+            for (int i = 0; i < count; i++) {
+                collection.add(queue.popMax());
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove all elements in descending order and add them to the collection.
+     *
+     * @return number of transferred elements.
+     */
+    public int drainTo(Collection<? super T> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return max element or {@code null} if queue is empty.
+     */
+    public T peek() {
+        lock.lock();
+        try {
+            return queue.isEmpty() ? null : queue.getMax();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A put signals only one consumer, so the consumer which took an element
+     * passes the signal on if elements remain and other consumers may wait.
+     */
+    private T popMaxAndPassSignal() {
+        T max = queue.popMax();
+        if (!queue.isEmpty()) {
+            notEmpty.signal();
+        }
+        return max;
+    }
+}
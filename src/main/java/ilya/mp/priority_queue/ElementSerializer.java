@@ -0,0 +1,54 @@
+package ilya.mp.priority_queue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts elements to bytes and back, used to spill queue elements to disk and to save maps.
+ */
+public interface ElementSerializer<T> {
+
+    ElementSerializer<Integer> INTEGER = new ElementSerializer<>() {
+        @Override
+        public void write(Integer element, DataOutput out) throws IOException {
+            out.writeInt(element);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    ElementSerializer<Long> LONG = new ElementSerializer<>() {
+        @Override
+        public void write(Long element, DataOutput out) throws IOException {
+            out.writeLong(element);
+        }
+
+        @Override
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+
+    /**
+     * Modified UTF-8 as in {@link DataOutput#writeUTF(String)}, so strings are limited to 65535 encoded bytes.
+     */
+    ElementSerializer<String> STRING = new ElementSerializer<>() {
+        @Override
+        public void write(String element, DataOutput out) throws IOException {
+            out.writeUTF(element);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    void write(T element, DataOutput out) throws IOException;
+
+    T read(DataInput in) throws IOException;
+}
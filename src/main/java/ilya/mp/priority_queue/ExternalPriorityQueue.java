@@ -0,0 +1,445 @@
+package ilya.mp.priority_queue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * PriorityQueue which can hold more elements than fits into memory.
+ * At most memoryLimit elements are kept in the in-memory binary heap,
+ * when it is full the heap is spilled to a temporary file as a run sorted in descending order.
+ * Max element is chosen among the in-memory heap and the heads of all runs (k-way merge),
+ * runs are read sequentially through buffered streams over FileChannel.
+ * When there are more than maxRuns runs, the smaller half of them is merged into one run,
+ * so open files and read buffers stay bounded and every element is rewritten O(log(n / memoryLimit)) times.
+ * Queue must be closed to delete the temporary files.
+ */
+public class ExternalPriorityQueue<T extends Comparable<T>> implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int DEFAULT_MAX_RUNS = 64;
+
+    private final int memoryLimit;
+    private final int maxRuns;
+    private final ElementSerializer<T> serializer;
+    private final Path directory;
+    private final PriorityQueue<T> memory;
+    private final PriorityQueue<Run<T>> runs;
+    private int size;
+
+    /**
+     * Temporary files are created in the default temporary directory.
+     */
+    public ExternalPriorityQueue(int memoryLimit, ElementSerializer<T> serializer) {
+        this(memoryLimit, serializer, null);
+    }
+
+    /**
+     * @param memoryLimit - max number of elements kept in memory.
+     * @param serializer  - used to write and read spilled elements.
+     * @param directory   - directory for temporary files, default temporary directory if null.
+     * @throws IllegalArgumentException in case if memoryLimit is not positive or serializer is null.
+     */
+    public ExternalPriorityQueue(int memoryLimit, ElementSerializer<T> serializer, Path directory) {
+        this(memoryLimit, serializer, directory, DEFAULT_MAX_RUNS);
+    }
+
+    /**
+     * @param maxRuns - max number of runs on disk, each of them holds an open file and a read buffer.
+     * @throws IllegalArgumentException in case if memoryLimit is not positive, maxRuns is less than 2
+     *                                  or serializer is null.
+     */
+    public ExternalPriorityQueue(int memoryLimit, ElementSerializer<T> serializer, Path directory, int maxRuns) {
+        if (memoryLimit <= 0) {
+            throw new IllegalArgumentException("Memory limit must be positive!");
+        }
+        if (maxRuns < 2) {
+            throw new IllegalArgumentException("Max number of runs must be at least 2!");
+        }
+        if (serializer == null) {
+            throw new IllegalArgumentException("Serializer cannot be null!");
+        }
+        this.memoryLimit = memoryLimit;
+        this.maxRuns = maxRuns;
+        this.serializer = serializer;
+        this.directory = directory;
+        this.memory = new PriorityQueue<>();
+        this.runs = new PriorityQueue<>();
+    }
+
+    /**
+     * Add new element to the in-memory heap, spill the heap to disk before if it is full.
+     *
+     * @param element - new element.
+     * @throws IllegalArgumentException in case if element is null.
+     * @throws UncheckedIOException     in case if the heap cannot be spilled or runs cannot be merged.
+     */
+    public void insert(T element) {
+        if (element == null) {
+            throw new IllegalArgumentException("Element cannot be null!");
+        }
+        if (memory.size() == memoryLimit) {
+            spill();
+            if (runs.size() > maxRuns) {
+                mergeRuns();
+            }
+        }
+        memory.insert(element);
+        size++;
+    }
+
+    /**
+     * Remove max element either from the in-memory heap or from the run with max head.
+     *
+     * @return max element.
+     * @throws UncheckedIOException in case if the next element of the run cannot be read,
+     *                              the queue stays as it was and the read is retried by the next call.
+     */
+    public T popMax() {
+        checkEmptyQueue();
+        if (runs.isEmpty() || (!memory.isEmpty() && memory.getMax().compareTo(runs.getMax().head) >= 0)) {
+            size--;
+            return memory.popMax();
+        }
+        Run<T> run = runs.popMax();
+        T max = run.head;
+        boolean hasNext;
+        try {
+            hasNext = run.advance();
+        } catch (RuntimeException e) {
+            // the head is left as it was, so the run goes back to its place
+            runs.insert(run);
+            throw e;
+        }
+        size--;
+        if (hasNext) {
+            runs.insert(run);
+        } else {
+            run.close();
+        }
+        return max;
+    }
+
+    /**
+     * @return max element.
+     */
+    public T getMax() {
+        checkEmptyQueue();
+        if (runs.isEmpty()) {
+            return memory.getMax();
+        }
+        T runMax = runs.getMax().head;
+        if (memory.isEmpty() || runMax.compareTo(memory.getMax()) > 0) {
+            return runMax;
+        }
+        return memory.getMax();
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Close and delete all temporary files. Queue becomes empty.
+     */
+    @Override
+    public void close() {
+        while (!runs.isEmpty()) {
+            runs.popMax().close();
+        }
+        while (!memory.isEmpty()) {
+            memory.popMax();
+        }
+        size = 0;
+    }
+
+    /**
+     * Write the in-memory heap to a new temporary file in descending order.
+     */
+    private void spill() {
+        List<T> sorted = new ArrayList<>(memory.size());
+        while (!memory.isEmpty()) {
+            sorted.add(memory.popMax());
+        }
+        Path file = null;
+        try {
+            file = createRunFile();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+                for (T element : sorted) {
+                    serializer.write(element, out);
+                }
+            }
+            Run<T> run = new Run<>(file, 0, sorted.size(), serializer);
+            try {
+                run.advance();
+            } catch (RuntimeException e) {
+                run.closeStreams();
+                throw e;
+            }
+            runs.insert(run);
+        } catch (IOException e) {
+            restore(sorted, file);
+            throw new UncheckedIOException("Cannot spill queue to disk", e);
+        } catch (RuntimeException e) {
+            restore(sorted, file);
+            throw e;
+        }
+    }
+
+    /**
+     * Merge the smaller half of the runs into one new run. The merge reads the runs through
+     * separate readers positioned at their heads, so if it fails the runs are left as they were.
+     */
+    private void mergeRuns() {
+        List<Run<T>> all = new ArrayList<>(runs.size());
+        while (!runs.isEmpty()) {
+            all.add(runs.popMax());
+        }
+        all.sort(Comparator.comparingInt(Run::count));
+        List<Run<T>> merged = new ArrayList<>(all.subList(0, all.size() / 2));
+
+        PriorityQueue<Run<T>> sources = new PriorityQueue<>();
+        List<Run<T>> opened = new ArrayList<>();
+        Path file = null;
+        int count = 0;
+        try {
+            for (Run<T> run : merged) {
+                Run<T> source = run.reopen();
+                opened.add(source);
+                source.advance();
+                sources.insert(source);
+                count += run.count();
+            }
+            file = createRunFile();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+                while (!sources.isEmpty()) {
+                    Run<T> source = sources.popMax();
+                    serializer.write(source.head, out);
+                    if (source.advance()) {
+                        sources.insert(source);
+                    }
+                }
+            }
+            Run<T> run = new Run<>(file, 0, count, serializer);
+            opened.add(run);
+            run.advance();
+            opened.remove(run);
+            for (Run<T> old : merged) {
+                old.close();
+            }
+            all.removeAll(merged);
+            all.add(run);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            throw e instanceof IOException
+                ? new UncheckedIOException("Cannot merge queue runs", (IOException) e)
+                : (RuntimeException) e;
+        } finally {
+            for (Run<T> source : opened) {
+                source.closeStreams();
+            }
+            for (Run<T> run : all) {
+                runs.insert(run);
+            }
+        }
+    }
+
+    /**
+     * Put the elements of a failed spill back to memory, so the queue stays as it was before the spill.
+     */
+    private void restore(List<T> sorted, Path file) {
+        for (T element : sorted) {
+            memory.insert(element);
+        }
+        deleteQuietly(file);
+    }
+
+    private Path createRunFile() throws IOException {
+        return directory == null
+            ? Files.createTempFile("priority-queue-run", ".tmp")
+            : Files.createTempFile(directory, "priority-queue-run", ".tmp");
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // file is in the temporary directory anyway
+        }
+    }
+
+    private void checkEmptyQueue() {
+        if (isEmpty()) {
+            throw new IllegalStateException("Queue is empty!");
+        }
+    }
+
+    /**
+     * Sorted run on disk, compared by the current head element.
+     */
+    private static final class Run<T extends Comparable<T>> implements Comparable<Run<T>> {
+        private final Path file;
+        private final ElementSerializer<T> serializer;
+        private FileChannel channel;
+        private CountingInputStream counter;
+        private DataInputStream in;
+        private int remaining;
+        private T head;
+        // position of the head in the file
+        private long headOffset;
+
+        /**
+         * @param offset - position of the first element to read.
+         * @param count  - number of elements from the offset to the end of the run.
+         */
+        Run(Path file, long offset, int count, ElementSerializer<T> serializer) throws IOException {
+            this.file = file;
+            this.serializer = serializer;
+            this.remaining = count;
+            open(offset);
+        }
+
+        private void open(long offset) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            channel.position(offset);
+            counter = new CountingInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE), offset);
+            in = new DataInputStream(counter);
+        }
+
+        /**
+         * @return separate reader of the same file starting at the head, the head is read again by advance.
+         */
+        Run<T> reopen() throws IOException {
+            return new Run<>(file, headOffset, count(), serializer);
+        }
+
+        /**
+         * @return number of elements left including the head.
+         */
+        int count() {
+            return remaining + (head == null ? 0 : 1);
+        }
+
+        /**
+         * Read next element into head. If the read fails, the head stays as it was
+         * and the streams are reopened at the failed element, so advance can be called again.
+         *
+         * @return {@code false} if the run is exhausted.
+         */
+        boolean advance() {
+            if (remaining == 0) {
+                head = null;
+                return false;
+            }
+            long offset = counter.count;
+            T next;
+            try {
+                next = serializer.read(in);
+            } catch (IOException e) {
+                rewind(offset);
+                throw new UncheckedIOException("Cannot read queue run " + file, e);
+            } catch (RuntimeException e) {
+                rewind(offset);
+                throw e;
+            }
+            head = next;
+            headOffset = offset;
+            remaining--;
+            return true;
+        }
+
+        /**
+         * Drop whatever a failed read has taken from the streams.
+         */
+        private void rewind(long offset) {
+            closeStreams();
+            try {
+                open(offset);
+            } catch (IOException ignored) {
+                // streams stay closed, so the next read fails again
+            }
+        }
+
+        void close() {
+            closeStreams();
+            deleteQuietly(file);
+        }
+
+        void closeStreams() {
+            try {
+                in.close();
+                channel.close();
+            } catch (IOException ignored) {
+                // nothing to do, the file is deleted or still read by another run
+            }
+        }
+
+        @Override
+        public int compareTo(Run<T> other) {
+            return head.compareTo(other.head);
+        }
+    }
+
+    /**
+     * Counts bytes taken from the buffered stream, which is the position in the file
+     * of the next element regardless of how far the buffer has read ahead.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in, long offset) {
+            super(in);
+            this.count = offset;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package ilya.mp.priority_queue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Max oriented priority queue based on pairing heap.
+ * Insert and meld take O(1), popMax takes amortized O(log n).
+ * Every inserted element gets a handle that can be used later
+ * to change its priority or to remove it from the heap.
+ */
+public class PairingHeap<T extends Comparable<T>> {
+    private Handle<T> root;
+    private int size;
+    // token of this heap in the handles, replaced when the heap is melded into another one
+    private Owner owner = new Owner();
+
+    /**
+     * Link new single node tree with the root.
+     *
+     * @param element - new element.
+     * @return handle of the inserted element.
+     * @throws IllegalArgumentException in case if element is null.
+     */
+    public Handle<T> insert(T element) {
+        checkNullElement(element);
+        Handle<T> node = new Handle<>(element, owner);
+        root = link(root, node);
+        size++;
+        return node;
+    }
+
+    /**
+     * Remove max element (root) and combine its children into a new heap.
+     *
+     * @return max element.
+     */
+    public T popMax() {
+        checkEmptyQueue();
+        Handle<T> max = root;
+        root = combineSiblings(max.child);
+        if (root != null) {
+            root.prev = null;
+        }
+        max.child = null;
+        max.owner = null;
+        size--;
+        return max.value;
+    }
+
+    /**
+     * Max element is always root of the heap.
+     *
+     * @return max element.
+     */
+    public T getMax() {
+        checkEmptyQueue();
+        return root.value;
+    }
+
+    /**
+     * Move all elements of other heap into this one. Other heap becomes empty.
+     * Handles of the other heap stay valid and belong to this heap after the call.
+     *
+     * @param other - heap to meld with.
+     * @throws IllegalArgumentException in case if other heap is null or the same heap.
+     */
+    public void meld(PairingHeap<T> other) {
+        if (other == null || other == this) {
+            throw new IllegalArgumentException("Cannot meld with null or the same heap!");
+        }
+        root = link(root, other.root);
+        size += other.size;
+        other.root = null;
+        other.size = 0;
+        other.owner.forward = owner;
+        other.owner = new Owner();
+    }
+
+    /**
+     * Replace element by the greater one. Node is cut from its parent and linked with the root.
+     *
+     * @throws IllegalArgumentException in case if element is null or less than the current one.
+     */
+    public void increaseKey(Handle<T> handle, T element) {
+        checkHandle(handle);
+        checkNullElement(element);
+        if (element.compareTo(handle.value) < 0) {
+            throw new IllegalArgumentException("New element is less than the current one!");
+        }
+        handle.value = element;
+        if (handle != root) {
+            cut(handle);
+            root = link(root, handle);
+        }
+    }
+
+    /**
+     * Replace element by the less one. Node is removed from the heap
+     * with its children and inserted back as a single node tree.
+     *
+     * @throws IllegalArgumentException in case if element is null or greater than the current one.
+     */
+    public void decreaseKey(Handle<T> handle, T element) {
+        checkHandle(handle);
+        checkNullElement(element);
+        if (element.compareTo(handle.value) > 0) {
+            throw new IllegalArgumentException("New element is greater than the current one!");
+        }
+        detach(handle);
+        handle.value = element;
+        root = link(root, handle);
+    }
+
+    /**
+     * Remove element by its handle.
+     *
+     * @return removed element.
+     */
+    public T remove(Handle<T> handle) {
+        checkHandle(handle);
+        if (handle == root) {
+            return popMax();
+        }
+        detach(handle);
+        handle.owner = null;
+        size--;
+        return handle.value;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Take the node out of the heap, its children are combined and linked with the root.
+     * After the call node is a single node tree.
+     */
+    private void detach(Handle<T> node) {
+        Handle<T> children = combineSiblings(node.child);
+        node.child = null;
+        if (node == root) {
+            root = children;
+            if (root != null) {
+                root.prev = null;
+            }
+        } else {
+            cut(node);
+            root = link(root, children);
+        }
+    }
+
+    /**
+     * Cut the subtree of the node from its parent.
+     */
+    private void cut(Handle<T> node) {
+        if (node.prev.child == node) {
+            node.prev.child = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    /**
+     * Make the root with less element the leftmost child of the other one.
+     *
+     * @return root of the linked tree.
+     */
+    private Handle<T> link(Handle<T> a, Handle<T> b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.value.compareTo(b.value) < 0) {
+            Handle<T> tmp = a;
+            a = b;
+            b = tmp;
+        }
+        b.prev = a;
+        b.next = a.child;
+        if (a.child != null) {
+            a.child.prev = b;
+        }
+        a.child = b;
+        a.next = null;
+        return a;
+    }
+
+    /**
+     * Two pass pairing: link siblings in pairs from left to right,
+     * then link the results from right to left.
+     *
+     * @param first - leftmost sibling.
+     * @return root of the combined tree.
+     */
+    private Handle<T> combineSiblings(Handle<T> first) {
+        if (first == null) {
+            return null;
+        }
+        List<Handle<T>> pairs = new ArrayList<>();
+        Handle<T> node = first;
+        while (node != null) {
+            Handle<T> a = node;
+            Handle<T> b = node.next;
+            node = b == null ? null : b.next;
+            a.prev = null;
+            a.next = null;
+            if (b != null) {
+                b.prev = null;
+                b.next = null;
+            }
+            pairs.add(link(a, b));
+        }
+        Handle<T> result = pairs.get(pairs.size() - 1);
+        for (int i = pairs.size() - 2; i >= 0; i--) {
+            result = link(pairs.get(i), result);
+        }
+        return result;
+    }
+
+    private void checkHandle(Handle<T> handle) {
+        if (handle == null) {
+            throw new IllegalArgumentException("Handle cannot be null!");
+        }
+        if (ownerOf(handle) != owner) {
+            throw new IllegalArgumentException("Handle is not in the heap!");
+        }
+    }
+
+    /**
+     * Follow the tokens of melded heaps to the current one, shortening the path on the way.
+     *
+     * @return token of the heap the handle is in, null if it was removed.
+     */
+    private static <T> Owner ownerOf(Handle<T> handle) {
+        Owner top = handle.owner;
+        if (top == null) {
+            return null;
+        }
+        while (top.forward != null) {
+            top = top.forward;
+        }
+        for (Owner o = handle.owner; o != top; ) {
+            Owner next = o.forward;
+            o.forward = top;
+            o = next;
+        }
+        handle.owner = top;
+        return top;
+    }
+
+    private void checkNullElement(T element) {
+        if (element == null) {
+            throw new IllegalArgumentException("Element cannot be null!");
+        }
+    }
+
+    private void checkEmptyQueue() {
+        if (isEmpty()) {
+            throw new IllegalStateException("Queue is empty!");
+        }
+    }
+
+    /**
+     * Node of the heap. Prev is the left sibling or the parent for the leftmost child.
+     */
+    public static final class Handle<T> {
+        private T value;
+        private Handle<T> child;
+        private Handle<T> next;
+        private Handle<T> prev;
+        private Owner owner;
+
+        private Handle(T value, Owner owner) {
+            this.value = value;
+            this.owner = owner;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Identity of a heap for its handles. Melding forwards the token of the emptied heap
+     * to the token of the receiving one, so meld stays O(1) and handle checks are amortized near O(1).
+     */
+    private static final class Owner {
+        private Owner forward;
+    }
+}
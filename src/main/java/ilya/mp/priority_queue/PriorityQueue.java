@@ -1,31 +1,43 @@
 package ilya.mp.priority_queue;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * PriorityQueue implementation based on binary heap.
+ * Each element is kept in a handle which knows its index in the heap,
+ * so an element can be removed or re-prioritized by its handle in O(log n).
  */
 public class PriorityQueue<T extends Comparable<T>> {
-    private final List<T> heap;
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private Handle<T>[] heap;
+    private int size;
 
     public PriorityQueue() {
-        this.heap = new ArrayList<>();
+        this.heap = newHeap(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Handle<T>[] newHeap(int capacity) {
+        return new Handle[capacity];
     }
 
     /**
      * Add new element to the end then place this element to the right place in the heap.
      *
      * @param element - new element.
+     * @return handle of the inserted element.
      * @throws IllegalArgumentException in case if element is null.
      */
-    public void insert(T element) {
-        if (element == null) {
-            throw new IllegalArgumentException("Element cannot be null!");
-        }
+    public Handle<T> insert(T element) {
+        checkNullElement(element);
 
-        heap.add(element);
-        upHeap(heap.size() - 1);
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        Handle<T> handle = new Handle<>(element, size);
+        upHeap(size++, handle);
+        return handle;
     }
 
     /**
@@ -35,14 +47,7 @@ public class PriorityQueue<T extends Comparable<T>> {
      */
     public T popMax() {
         checkEmptyQueue();
-        if (heap.size() == 1) {
-            return heap.remove(0);
-        }
-        T max = heap.get(0);
-        T last = heap.remove(heap.size() - 1);
-        heap.set(0, last);
-        downHeap(0);
-        return max;
+        return removeAt(0);
     }
 
     /**
@@ -52,63 +57,144 @@ public class PriorityQueue<T extends Comparable<T>> {
      */
     public T getMax() {
         checkEmptyQueue();
-        return heap.get(0);
+        return heap[0].value;
+    }
+
+    /**
+     * Remove element by its handle. Last element takes its place and is moved up or down.
+     *
+     * @return removed element.
+     * @throws IllegalArgumentException in case if handle is not in the queue.
+     */
+    public T remove(Handle<T> handle) {
+        checkHandle(handle);
+        return removeAt(handle.index);
+    }
+
+    /**
+     * Replace element of the handle and move it up or down to the right position.
+     *
+     * @throws IllegalArgumentException in case if handle is not in the queue or element is null.
+     */
+    public void updatePriority(Handle<T> handle, T element) {
+        checkHandle(handle);
+        checkNullElement(element);
+
+        int cmp = element.compareTo(handle.value);
+        handle.value = element;
+        if (cmp > 0) {
+            upHeap(handle.index, handle);
+        } else if (cmp < 0) {
+            downHeap(handle.index, handle);
+        }
+    }
+
+    /**
+     * @return {@code true} if the handle's element is in this queue.
+     */
+    public boolean contains(Handle<T> handle) {
+        return handle != null && handle.index >= 0 && handle.index < size && heap[handle.index] == handle;
     }
 
     public boolean isEmpty() {
-        return heap.isEmpty();
+        return size == 0;
     }
 
     public int size() {
-        return heap.size();
+        return size;
     }
 
     /**
-     * Raises element at index i up to right position so that heap property is restored.
+     * Replace element at index i by the last one and restore heap.
      *
-     * @param i - index of the element in the heap to rise.
+     * @return removed element.
      */
-    private void upHeap(int i) {
-        while (i >= 1) {
-            int parent = (i - 1) / 2;
-            if (heap.get(i).compareTo(heap.get(parent)) > 0) {
-                swap(i, parent);
-                i = parent;
+    private T removeAt(int i) {
+        Handle<T> removed = heap[i];
+        Handle<T> last = heap[--size];
+        heap[size] = null;
+        removed.index = -1;
+        if (last != removed) {
+            if (i > 0 && last.value.compareTo(heap[(i - 1) / 2].value) > 0) {
+                upHeap(i, last);
             } else {
-                break;
+                downHeap(i, last);
             }
         }
+        return removed.value;
     }
 
     /**
-     * Moves element down by index to right position so that heap property is restored.
+     * Raises the element from the hole at index i: parents less than the element
+     * are moved down into the hole until the right position is found.
      *
-     * @param i index of the element in the heap to move down.
+     * @param i       - index of the hole.
+     * @param element - element to place.
      */
-    private void downHeap(int i) {
-        int greatest = i;
-        while (i < heap.size()) {
-            int lChild = 2 * i + 1;
-            int rChild = 2 * i + 2;
-
-            if (lChild < heap.size() && heap.get(lChild).compareTo(heap.get(i)) > 0) {
-                greatest = lChild;
+    private void upHeap(int i, Handle<T> element) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (element.value.compareTo(heap[parent].value) <= 0) {
+                break;
             }
-            if (rChild < heap.size() && heap.get(rChild).compareTo(heap.get(greatest)) > 0) {
-                greatest = rChild;
+            move(parent, i);
+            i = parent;
+        }
+        place(element, i);
+    }
+
+    /**
+     * Bottom-up (Floyd) sift down of the element from the hole at index i.
+     * Greater children are moved up into the hole all the way down to a leaf,
+     * one comparison per level, then the element is raised from the leaf.
+     * The element usually comes from the bottom of the heap, so it rarely
+     * moves up more than a level or two.
+     *
+     * @param i       - index of the hole.
+     * @param element - element to place.
+     */
+    private void downHeap(int i, Handle<T> element) {
+        int top = i;
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && heap[child + 1].value.compareTo(heap[child].value) > 0) {
+                child++;
             }
-            if (greatest == i) {
-                return;
+            move(child, i);
+            i = child;
+        }
+        while (i > top) {
+            int parent = (i - 1) / 2;
+            if (element.value.compareTo(heap[parent].value) <= 0) {
+                break;
             }
-            swap(i, greatest);
-            i = greatest;
+            move(parent, i);
+            i = parent;
         }
+        place(element, i);
+    }
+
+    private void move(int from, int to) {
+        Handle<T> handle = heap[from];
+        heap[to] = handle;
+        handle.index = to;
     }
 
-    private void swap(int i, int j) {
-        T tmp = heap.get(i);
-        heap.set(i, heap.get(j));
-        heap.set(j, tmp);
+    private void place(Handle<T> handle, int i) {
+        heap[i] = handle;
+        handle.index = i;
+    }
+
+    private void checkHandle(Handle<T> handle) {
+        if (!contains(handle)) {
+            throw new IllegalArgumentException("Handle is not in the queue!");
+        }
+    }
+
+    private void checkNullElement(T element) {
+        if (element == null) {
+            throw new IllegalArgumentException("Element cannot be null!");
+        }
     }
 
     private void checkEmptyQueue() {
@@ -116,4 +202,21 @@ public class PriorityQueue<T extends Comparable<T>> {
             throw new IllegalStateException("Queue is empty!");
         }
     }
+
+    /**
+     * Element of the queue with its current index in the heap, -1 after removal.
+     */
+    public static final class Handle<T> {
+        private T value;
+        private int index;
+
+        private Handle(T value, int index) {
+            this.value = value;
+            this.index = index;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
 }
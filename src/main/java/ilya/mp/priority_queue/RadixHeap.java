@@ -0,0 +1,141 @@
+package ilya.mp.priority_queue;
+
+import java.util.Arrays;
+
+/**
+ * Monotone min priority queue with primitive long keys and int payloads based on radix heap.
+ * Keys of inserted elements must not be less than {@link #getLastKey()},
+ * the key of the last element which was popped or peeked.
+ * Insert takes O(1), popMin takes amortized O(log C) where C is the maximal key difference.
+ * Monotonicity is validated only when assertions are enabled.
+ */
+public class RadixHeap {
+    // bucket 0 holds keys equal to the last key, bucket i holds keys
+    // whose highest bit different from the last key is bit i - 1
+    private static final int BUCKETS = Long.SIZE + 1;
+    private static final int DEFAULT_BUCKET_CAPACITY = 4;
+
+    private final long[][] keys;
+    private final int[][] values;
+    private final int[] sizes;
+    private long last;
+    private int size;
+
+    public RadixHeap() {
+        keys = new long[BUCKETS][];
+        values = new int[BUCKETS][];
+        sizes = new int[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            keys[i] = new long[DEFAULT_BUCKET_CAPACITY];
+            values[i] = new int[DEFAULT_BUCKET_CAPACITY];
+        }
+        last = Long.MIN_VALUE;
+    }
+
+    /**
+     * Put new element into the bucket chosen by the highest bit different from the last key.
+     *
+     * @param key   - priority, cannot be less than the last key.
+     * @param value - payload.
+     */
+    public void insert(long key, int value) {
+        assert key >= last : "Key " + key + " is less than the last key " + last;
+        add(bucketOf(key), key, value);
+        size++;
+    }
+
+    /**
+     * Remove element with min key.
+     *
+     * @return payload of the element with min key.
+     */
+    public int popMin() {
+        checkEmptyQueue();
+        pullMin();
+        size--;
+        return values[0][--sizes[0]];
+    }
+
+    /**
+     * @return min key.
+     */
+    public long getMinKey() {
+        checkEmptyQueue();
+        pullMin();
+        return last;
+    }
+
+    /**
+     * @return payload of the element with min key.
+     */
+    public int getMinValue() {
+        checkEmptyQueue();
+        pullMin();
+        return values[0][sizes[0] - 1];
+    }
+
+    /**
+     * @return key of the last popped or peeked element, all new keys must be not less than it.
+     */
+    public long getLastKey() {
+        return last;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * If bucket 0 is empty, find the first non empty bucket, make its min key
+     * the last key and redistribute the bucket. Each element moves only to
+     * buckets with less index, that gives amortized O(log C).
+     */
+    private void pullMin() {
+        if (sizes[0] > 0) {
+            return;
+        }
+        int bucket = 1;
+        while (sizes[bucket] == 0) {
+            bucket++;
+        }
+        long[] bucketKeys = keys[bucket];
+        int[] bucketValues = values[bucket];
+        int bucketSize = sizes[bucket];
+        long min = bucketKeys[0];
+        for (int i = 1; i < bucketSize; i++) {
+            if (bucketKeys[i] < min) {
+                min = bucketKeys[i];
+            }
+        }
+        last = min;
+        sizes[bucket] = 0;
+        for (int i = 0; i < bucketSize; i++) {
+            add(bucketOf(bucketKeys[i]), bucketKeys[i], bucketValues[i]);
+        }
+    }
+
+    private int bucketOf(long key) {
+        return key == last ? 0 : Long.SIZE - Long.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void add(int bucket, long key, int value) {
+        int bucketSize = sizes[bucket];
+        if (bucketSize == keys[bucket].length) {
+            keys[bucket] = Arrays.copyOf(keys[bucket], bucketSize * 2);
+            values[bucket] = Arrays.copyOf(values[bucket], bucketSize * 2);
+        }
+        keys[bucket][bucketSize] = key;
+        values[bucket][bucketSize] = value;
+        sizes[bucket] = bucketSize + 1;
+    }
+
+    private void checkEmptyQueue() {
+        if (isEmpty()) {
+            throw new IllegalStateException("Queue is empty!");
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package ilya.mp.priority_queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel for timeouts, an alternative to PriorityQueue when most
+ * of the timeouts are cancelled before they expire. Schedule and cancel take O(1).
+ *
+ * Time is measured in ticks of tickDuration and is moved forward only by advanceTo.
+ * Level i of the wheel has wheelSize slots of wheelSize^i ticks each, a timeout is kept
+ * on the lowest level whose range contains it and cascades to lower levels as time goes.
+ * Timeouts farther than wheelSize^levels ticks are kept in a heap until they fit into the wheel,
+ * cancelling such a timeout removes it from the heap in O(log n).
+ */
+public class TimingWheel<T> {
+    private final long tickDuration;
+    private final int levels;
+    private final int wheelBits;
+    private final int wheelMask;
+    private final Bucket<T>[][] wheels;
+    private final Bucket<T> due;
+    private final PriorityQueue<FarTimeout<T>> overflow;
+    private long currentTick;
+    private int wheelCount;
+    private int size;
+
+    /**
+     * @param tickDuration - duration of the single tick in time units used by schedule and advanceTo.
+     * @param wheelSize    - number of slots on each level, must be a power of two.
+     * @param levels       - number of levels.
+     * @throws IllegalArgumentException in case if the wheel cannot be built with given parameters.
+     */
+    public TimingWheel(long tickDuration, int wheelSize, int levels) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive!");
+        }
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two greater than one!");
+        }
+        int bits = Integer.numberOfTrailingZeros(wheelSize);
+        if (levels <= 0 || (long) levels * bits >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Wrong number of levels: " + levels);
+        }
+        this.tickDuration = tickDuration;
+        this.levels = levels;
+        this.wheelBits = bits;
+        this.wheelMask = wheelSize - 1;
+        this.wheels = newWheels(levels, wheelSize);
+        for (int level = 0; level < levels; level++) {
+            for (int slot = 0; slot < wheelSize; slot++) {
+                wheels[level][slot] = new Bucket<>();
+            }
+        }
+        this.due = new Bucket<>();
+        this.overflow = new PriorityQueue<>();
+    }
+
+    /**
+     * Schedule the task to expire at the deadline. Task with a past deadline
+     * expires on the next advanceTo call.
+     *
+     * @return timeout which can be used to cancel the task.
+     * @throws IllegalArgumentException in case if task is null.
+     */
+    public Timeout<T> schedule(T task, long deadline) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null!");
+        }
+        // round up so that the task never expires before the deadline
+        Timeout<T> timeout = new Timeout<>(this, task, deadline, -Math.floorDiv(-deadline, tickDuration));
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancel the timeout if it has neither expired nor been cancelled yet.
+     *
+     * @return {@code true} if the timeout was cancelled by this call.
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || timeout.wheel != this || timeout.state != Timeout.PENDING) {
+            return false;
+        }
+        timeout.state = Timeout.CANCELLED;
+        if (timeout.bucket != null) {
+            timeout.bucket.remove(timeout);
+            if (timeout.bucket != due) {
+                wheelCount--;
+            }
+            timeout.bucket = null;
+        } else {
+            overflow.remove(timeout.farHandle);
+            timeout.farHandle = null;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Move time forward and collect tasks of all expired timeouts in order of expiration ticks.
+     *
+     * @param now      - current time, time never goes back.
+     * @param expired  - collection for expired tasks.
+     * @return number of expired tasks.
+     */
+    public int advanceTo(long now, Collection<? super T> expired) {
+        long targetTick = Math.floorDiv(now, tickDuration);
+        int count = expire(due, expired);
+
+        while (currentTick < targetTick) {
+            if (wheelCount == 0) {
+                // nothing can expire before the next far timeout reaches the wheel
+                long next = nextOverflowTick();
+                if (next > targetTick) {
+                    currentTick = targetTick;
+                    break;
+                }
+                currentTick = next - 1;
+            }
+            currentTick++;
+            count += tick(expired);
+        }
+        return count;
+    }
+
+    /**
+     * @return list of expired tasks.
+     * @see #advanceTo(long, Collection)
+     */
+    public List<T> advanceTo(long now) {
+        List<T> expired = new ArrayList<>();
+        advanceTo(now, expired);
+        return expired;
+    }
+
+    /**
+     * @return time of the current tick.
+     */
+    public long getCurrentTime() {
+        return currentTick * tickDuration;
+    }
+
+    /**
+     * @return number of pending timeouts.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Process single tick: pull far timeouts when the top level turns over,
+     * cascade slots of higher levels from top to bottom and expire the slot of level 0.
+     */
+    private int tick(Collection<? super T> expired) {
+        int topBits = levels * wheelBits;
+        if ((currentTick & ((1L << topBits) - 1)) == 0) {
+            while (!overflow.isEmpty()
+                && overflow.getMax().timeout.deadlineTick >>> topBits == currentTick >>> topBits) {
+                Timeout<T> timeout = overflow.popMax().timeout;
+                timeout.farHandle = null;
+                place(timeout);
+            }
+        }
+        for (int level = levels - 1; level > 0; level--) {
+            int shift = level * wheelBits;
+            if ((currentTick & ((1L << shift) - 1)) == 0) {
+                Timeout<T> timeout = wheels[level][(int) (currentTick >>> shift) & wheelMask].detachAll();
+                while (timeout != null) {
+                    Timeout<T> next = timeout.next;
+                    timeout.prev = null;
+                    timeout.next = null;
+                    wheelCount--;
+                    place(timeout);
+                    timeout = next;
+                }
+            }
+        }
+        return expire(wheels[0][(int) currentTick & wheelMask], expired) + expire(due, expired);
+    }
+
+    private int expire(Bucket<T> bucket, Collection<? super T> expired) {
+        int count = 0;
+        Timeout<T> timeout = bucket.detachAll();
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            timeout.state = Timeout.EXPIRED;
+            expired.add(timeout.task);
+            timeout = next;
+            count++;
+        }
+        if (bucket != due) {
+            wheelCount -= count;
+        }
+        size -= count;
+        return count;
+    }
+
+    /**
+     * Put the timeout on the lowest level where the deadline tick and the current tick
+     * differ only in the digit of that level.
+     */
+    private void place(Timeout<T> timeout) {
+        long deadlineTick = timeout.deadlineTick;
+        if (deadlineTick <= currentTick) {
+            due.add(timeout);
+            return;
+        }
+        long diff = deadlineTick ^ currentTick;
+        for (int level = 0; level < levels; level++) {
+            if (diff >>> ((level + 1) * wheelBits) == 0) {
+                wheels[level][(int) (deadlineTick >>> (level * wheelBits)) & wheelMask].add(timeout);
+                wheelCount++;
+                return;
+            }
+        }
+        timeout.bucket = null;
+        timeout.farHandle = overflow.insert(new FarTimeout<>(timeout));
+    }
+
+    /**
+     * @return first tick of the top level turn at which the nearest far timeout reaches the wheel.
+     */
+    private long nextOverflowTick() {
+        if (overflow.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        int topBits = levels * wheelBits;
+        return overflow.getMax().timeout.deadlineTick >>> topBits << topBits;
+    }
+
+    /**
+     * Scheduled task. Timeout is linked into the bucket of the slot it is waiting in.
+     */
+    public static final class Timeout<T> {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final TimingWheel<T> wheel;
+        private final T task;
+        private final long deadline;
+        private final long deadlineTick;
+        private int state;
+        private Bucket<T> bucket;
+        private PriorityQueue.Handle<FarTimeout<T>> farHandle;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(TimingWheel<T> wheel, T task, long deadline, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        /**
+         * @return {@code true} if the timeout was cancelled by this call.
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Bucket<T>[][] newWheels(int levels, int wheelSize) {
+        return new Bucket[levels][wheelSize];
+    }
+
+    /**
+     * Doubly linked list of timeouts waiting in the same slot.
+     */
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+        private Timeout<T> tail;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        /**
+         * @return head of the list, the bucket becomes empty.
+         */
+        Timeout<T> detachAll() {
+            Timeout<T> first = head;
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+
+    /**
+     * Far timeout in the max heap, the earlier deadline is the greater.
+     */
+    private static final class FarTimeout<T> implements Comparable<FarTimeout<T>> {
+        private final Timeout<T> timeout;
+
+        FarTimeout(Timeout<T> timeout) {
+            this.timeout = timeout;
+        }
+
+        @Override
+        public int compareTo(FarTimeout<T> other) {
+            return Long.compare(other.timeout.deadlineTick, timeout.deadlineTick);
+        }
+    }
+}
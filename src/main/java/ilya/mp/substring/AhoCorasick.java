@@ -0,0 +1,264 @@
+package ilya.mp.substring;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton which finds all occurrences of many patterns in one pass over the text.
+ *
+ * States are numbered in breadth-first order, so shallow states, where the search spends most
+ * of its time, come first. The first of them have dense rows of ALPHABET_SIZE transitions with
+ * failure links already resolved, which makes a step from such a state a single array read.
+ * Other states keep only their own edges in compressed sparse rows sorted by character
+ * and fall back along failure links on a miss.
+ *
+ * The automaton is immutable, one instance can be used by many threads at the same time.
+ */
+public class AhoCorasick {
+    private static final int ALPHABET_SIZE = 256;
+    // dense rows take ALPHABET_SIZE ints each, 1024 of them take 1 MB
+    private static final int MAX_DENSE_STATES = 1024;
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final int denseStates;
+    // dense[state * ALPHABET_SIZE + c] is the next state for c < ALPHABET_SIZE and state < denseStates
+    private final int[] dense;
+    // edges of state s are labels[rowStart[s]..rowStart[s + 1]) leading to targets of the same indexes
+    private final int[] rowStart;
+    private final char[] labels;
+    private final int[] targets;
+    private final int[] fail;
+    // patterns ending in state s are outIds[outStart[s]..outStart[s + 1])
+    private final int[] outStart;
+    private final int[] outIds;
+    // nearest state on the failure chain with own patterns, NONE if there is no such state
+    private final int[] outputLink;
+    private final int[] patternLengths;
+
+    /**
+     * Listener of matches, called in order of match ends.
+     */
+    @FunctionalInterface
+    public interface MatchListener {
+
+        void onMatch(int patternId, int offset);
+    }
+
+    private AhoCorasick(List<char[]> patterns) {
+        // trie with children sorted by character, state 0 is the root
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ends.add(new ArrayList<>());
+        patternLengths = new int[patterns.size()];
+        for (int id = 0; id < patterns.size(); id++) {
+            char[] pattern = patterns.get(id);
+            if (pattern == null || pattern.length == 0) {
+                throw new IllegalArgumentException("Pattern cannot be empty!");
+            }
+            patternLengths[id] = pattern.length;
+            int state = ROOT;
+            for (char c : pattern) {
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    ends.add(new ArrayList<>());
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            ends.get(state).add(id);
+        }
+
+        // renumber states in breadth-first order
+        int states = trie.size();
+        int[] order = new int[states];
+        int[] number = new int[states];
+        int count = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(ROOT);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            number[state] = count;
+            order[count++] = state;
+            queue.addAll(trie.get(state).values());
+        }
+
+        rowStart = new int[states + 1];
+        outStart = new int[states + 1];
+        labels = new char[states - 1];
+        targets = new int[states - 1];
+        outIds = new int[patterns.size()];
+        int edge = 0;
+        int out = 0;
+        for (int state = 0; state < states; state++) {
+            rowStart[state] = edge;
+            outStart[state] = out;
+            for (Map.Entry<Character, Integer> child : trie.get(order[state]).entrySet()) {
+                labels[edge] = child.getKey();
+                targets[edge++] = number[child.getValue()];
+            }
+            for (int id : ends.get(order[state])) {
+                outIds[out++] = id;
+            }
+        }
+        rowStart[states] = edge;
+        outStart[states] = out;
+
+        // failure links and dense rows in breadth-first order, failure links lead to earlier states
+        denseStates = Math.min(states, MAX_DENSE_STATES);
+        dense = new int[denseStates * ALPHABET_SIZE];
+        fail = new int[states];
+        outputLink = new int[states];
+        outputLink[ROOT] = NONE;
+        for (int state = 0; state < states; state++) {
+            if (state < denseStates) {
+                fillDenseRow(state);
+            }
+            for (int e = rowStart[state]; e < rowStart[state + 1]; e++) {
+                int child = targets[e];
+                fail[child] = state == ROOT ? ROOT : next(fail[state], labels[e]);
+                outputLink[child] = hasOutput(fail[child]) ? fail[child] : outputLink[fail[child]];
+            }
+        }
+    }
+
+    /**
+     * Build the automaton of the patterns, the id of a pattern is its index in the list.
+     *
+     * @throws IllegalArgumentException in case if a pattern is null or empty.
+     */
+    public static AhoCorasick compile(List<char[]> patterns) {
+        Objects.requireNonNull(patterns);
+        List<char[]> copies = new ArrayList<>(patterns.size());
+        for (char[] pattern : patterns) {
+            copies.add(pattern == null ? null : pattern.clone());
+        }
+        return new AhoCorasick(copies);
+    }
+
+    public static AhoCorasick compile(char[]... patterns) {
+        return compile(Arrays.asList(patterns));
+    }
+
+    /**
+     * Pass all occurrences of the patterns to the listener in a single pass over the text.
+     * Occurrences ending at the same position are reported from the longest pattern to the shortest.
+     */
+    public void search(char[] text, MatchListener listener) {
+        int state = ROOT;
+        for (int i = 0; i < text.length; i++) {
+            state = next(state, text[i]);
+            for (int s = hasOutput(state) ? state : outputLink[state]; s != NONE; s = outputLink[s]) {
+                for (int o = outStart[s]; o < outStart[s + 1]; o++) {
+                    int id = outIds[o];
+                    listener.onMatch(id, i - patternLengths[id] + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return all occurrences of the patterns in order of their ends.
+     */
+    public List<Match> search(char[] text) {
+        List<Match> matches = new ArrayList<>();
+        search(text, (patternId, offset) -> matches.add(new Match(patternId, offset)));
+        return matches;
+    }
+
+    public int getPatternCount() {
+        return patternLengths.length;
+    }
+
+    /**
+     * Goto function with failure links: follow the edge of the character, or the failure link if there is none.
+     */
+    private int next(int state, char c) {
+        while (true) {
+            if (state < denseStates && c < ALPHABET_SIZE) {
+                return dense[state * ALPHABET_SIZE + c];
+            }
+            int e = Arrays.binarySearch(labels, rowStart[state], rowStart[state + 1], c);
+            if (e >= 0) {
+                return targets[e];
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    /**
+     * Row of the state: own edges, other characters lead where the failure state leads.
+     * The failure state is earlier in breadth-first order, so its row is already filled.
+     */
+    private void fillDenseRow(int state) {
+        int row = state * ALPHABET_SIZE;
+        if (state == ROOT) {
+            Arrays.fill(dense, row, row + ALPHABET_SIZE, ROOT);
+        } else {
+            System.arraycopy(dense, fail[state] * ALPHABET_SIZE, dense, row, ALPHABET_SIZE);
+        }
+        for (int e = rowStart[state]; e < rowStart[state + 1]; e++) {
+            if (labels[e] < ALPHABET_SIZE) {
+                dense[row + labels[e]] = targets[e];
+            }
+        }
+    }
+
+    private boolean hasOutput(int state) {
+        return outStart[state] < outStart[state + 1];
+    }
+
+    /**
+     * Occurrence of the pattern starting at the offset of the text.
+     */
+    public static final class Match {
+        private final int patternId;
+        private final int offset;
+
+        public Match(int patternId, int offset) {
+            this.patternId = patternId;
+            this.offset = offset;
+        }
+
+        public int getPatternId() {
+            return patternId;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Match)) {
+                return false;
+            }
+            Match match = (Match) o;
+            return patternId == match.patternId && offset == match.offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * patternId + offset;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + patternId + ", " + offset + ")";
+        }
+    }
+}
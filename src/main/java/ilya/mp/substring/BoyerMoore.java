@@ -1,23 +1,47 @@
 package ilya.mp.substring;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  *  Reads in two strings, the pattern and the input text, and
  *  searches for the pattern in the input text using the
- *  bad-character rule part of the Boyer-Moore algorithm.
+ *  Boyer-Moore algorithm with the bad-character and the strong good-suffix rules.
+ *  After a match the window moves by the period of the pattern and, by Galil's rule,
+ *  the part already known to match is not compared again, so the search is linear
+ *  in the worst case even for periodic patterns like AAAA.
+ *
+ *  Characters are put into ALPHABET_SIZE buckets by their low byte, a collision only makes a shift shorter.
  */
-public class BoyerMoore {
+public class BoyerMoore implements SubstringMatcher {
     private static final int ALPHABET_SIZE = 256;
-    private static final int[] RIGHT; // the bad-character skip array
+    private static final int MASK = ALPHABET_SIZE - 1;
 
-    static {
+    private final char[] pattern;
+    private final int[] right; // the bad-character skip array
+    private final int[] goodSuffix; // shift after a mismatch at the position
+    private final int period;
+
+    private BoyerMoore(char[] pattern) {
+        this.pattern = pattern;
         // position of rightmost occurrence of c in the pattern
-        RIGHT = new int[ALPHABET_SIZE];
-        for (int c = 0; c < ALPHABET_SIZE; c++) {
-            RIGHT[c] = -1;
+        this.right = new int[ALPHABET_SIZE];
+        Arrays.fill(right, -1);
+        for (int j = 0; j < pattern.length; j++) {
+            right[pattern[j] & MASK] = j;
         }
+        this.goodSuffix = buildGoodSuffix(pattern);
+        this.period = goodSuffix[0];
+    }
+
+    /**
+     * Preprocess the pattern once for searching in many texts.
+     *
+     * @throws IllegalArgumentException in case if pattern is null or empty.
+     */
+    public static SubstringMatcher compile(char[] pattern) {
+        return new BoyerMoore(Patterns.copyOf(pattern));
     }
 
     /**
@@ -26,31 +50,85 @@ public class BoyerMoore {
      * @return empty array in case if text doesn't contains pattern and array of indexes in another case.
      */
     public static List<Integer> search(char[] text, char[] pattern) {
+        return compile(pattern).search(text);
+    }
+
+    @Override
+    public List<Integer> search(char[] text) {
         List<Integer> idxes = new ArrayList<>();
         int patternLength = pattern.length;
         int textLength = text.length;
-        int skip;
-
-        fillBadCharSkip(pattern);
-        for (int i = 0; i <= textLength - patternLength; i += skip) {
-            skip = 0;
-            for (int j = patternLength - 1; j >= 0; j--) {
-                if (pattern[j] != text[i + j]) {
-                    skip = Math.max(1, j - RIGHT[text[i + j]]);
-                    break;
-                }
+        // pattern[0..known) matches the window after a shift by the period
+        int known = 0;
+
+        for (int i = 0; i <= textLength - patternLength; ) {
+            int j = patternLength - 1;
+            while (j >= known && pattern[j] == text[i + j]) {
+                j--;
             }
-            if (skip == 0) {
+            if (j < known) {
                 idxes.add(i);
-                skip = 1;
+                i += period;
+                known = patternLength - period;
+            } else {
+                i += Math.max(goodSuffix[j], j - right[text[i + j] & MASK]);
+                known = 0;
             }
         }
         return idxes;
     }
 
-    private static void fillBadCharSkip(char[] pattern) {
-        for (int j = 0; j < pattern.length; j++) {
-            RIGHT[pattern[j]] = j;
+    /**
+     * goodSuffix[j] is the least shift which aligns the matched suffix pattern[j + 1..m) with an equal
+     * substring of the pattern preceded by a character other than pattern[j], or with a prefix
+     * of the pattern if the suffix is longer than any such match. goodSuffix[0] is the period of the pattern.
+     */
+    private static int[] buildGoodSuffix(char[] pattern) {
+        int m = pattern.length;
+        int[] suffix = suffixes(pattern);
+        int[] goodSuffix = new int[m];
+        Arrays.fill(goodSuffix, m);
+        // suffix matches a prefix of the pattern
+        int j = 0;
+        for (int i = m - 1; i >= 0; i--) {
+            if (suffix[i] == i + 1) {
+                for (; j < m - 1 - i; j++) {
+                    if (goodSuffix[j] == m) {
+                        goodSuffix[j] = m - 1 - i;
+                    }
+                }
+            }
+        }
+        // suffix occurs inside the pattern
+        for (int i = 0; i <= m - 2; i++) {
+            goodSuffix[m - 1 - suffix[i]] = m - 1 - i;
+        }
+        return goodSuffix;
+    }
+
+    /**
+     * @return suffix[i] is the length of the longest common suffix of pattern[0..i] and the pattern.
+     */
+    private static int[] suffixes(char[] pattern) {
+        int m = pattern.length;
+        int[] suffix = new int[m];
+        suffix[m - 1] = m;
+        int g = m - 1;
+        int f = m - 1;
+        for (int i = m - 2; i >= 0; i--) {
+            if (i > g && suffix[i + m - 1 - f] < i - g) {
+                suffix[i] = suffix[i + m - 1 - f];
+            } else {
+                if (i < g) {
+                    g = i;
+                }
+                f = i;
+                while (g >= 0 && pattern[g] == pattern[g + m - 1 - f]) {
+                    g--;
+                }
+                suffix[i] = f - g;
+            }
         }
+        return suffix;
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,58 @@
 package ilya.mp.substring;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-public class FA {
-    private static final int ALPHABET_SIZE = 256;
+/**
+ * Searches for the pattern in the input text by simulating
+ * the deterministic finite automaton which recognizes the pattern.
+ *
+ * Columns of the automaton are the distinct characters of the pattern plus one column
+ * for all other characters, which always act the same, so any char of the text can be read.
+ */
+public class FA implements SubstringMatcher {
+    // characters below it are mapped to columns by a table, others by binary search
+    private static final int TABLE_SIZE = 256;
+    private static final int OTHER = 0;
 
-    private static int[][] dfa;
+    private final int patternLen;
+    // distinct characters of the pattern in ascending order, alphabet[i] has column i + 1
+    private final char[] alphabet;
+    // index of the first character of the alphabet not less than TABLE_SIZE
+    private final int firstWide;
+    private final int[] columns;
+    private final int[][] dfa;
+
+    private FA(char[] pattern) {
+        this.patternLen = pattern.length;
+        char[] sorted = pattern.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        this.alphabet = Arrays.copyOf(sorted, distinct);
+        this.columns = new int[TABLE_SIZE];
+        int wide = 0;
+        while (wide < alphabet.length && alphabet[wide] < TABLE_SIZE) {
+            columns[alphabet[wide]] = wide + 1;
+            wide++;
+        }
+        this.firstWide = wide;
+        this.dfa = buildDfa(pattern);
+    }
+
+    /**
+     * Preprocess the pattern once for searching in many texts.
+     *
+     * @throws IllegalArgumentException in case if pattern is null or empty.
+     */
+    public static SubstringMatcher compile(char[] pattern) {
+        return new FA(Patterns.copyOf(pattern));
+    }
 
     /**
      * Returns the indexes of the occurrences of the pattern string in the text string.
@@ -14,15 +60,18 @@ public class FA {
      * @return empty array in case if text doesn't contains pattern and array of indexes in another case.
      */
     public static List<Integer> search(char[] text, char[] pattern) {
-        preprocessPattern(pattern);
+        return compile(pattern).search(text);
+    }
+
+    @Override
+    public List<Integer> search(char[] text) {
         List<Integer> idxes = new ArrayList<>();
 
         // simulate operation of DFA on text
-        int patternLen = pattern.length;
         int textLen = text.length;
         int state = 0;
         for (int i = 0; i < textLen; i++) {
-            state = dfa[state][text[i]];
+            state = dfa[state][column(text[i])];
             if (state == patternLen) {
                 idxes.add(i - patternLen + 1);
             }
@@ -30,36 +79,35 @@ public class FA {
         return idxes;
     }
 
-    private static void preprocessPattern(char[] pattern) {
-        int patternLen = pattern.length;
-
-        // build DFA from pattern
-        dfa = new int[patternLen + 1][ALPHABET_SIZE];
-        for (int state = 0; state <= patternLen; state++) {
-            for (int x = 0; x < ALPHABET_SIZE; x++) {
-                dfa[state][x] = getNextState(pattern, patternLen, state, x);
-            }
+    /**
+     * @return column of the character, OTHER if the pattern does not contain it.
+     */
+    private int column(char c) {
+        if (c < TABLE_SIZE) {
+            return columns[c];
         }
+        int i = Arrays.binarySearch(alphabet, firstWide, alphabet.length, c);
+        return i < 0 ? OTHER : i + 1;
     }
 
-    private static int getNextState(char[] pattern, int patternLen, int state, int x) {
-        if(state < patternLen && x == pattern[state]) {
-            return state + 1;
-        }
-
-        for (int ns = state; ns > 0; ns--) {
-            if (pattern[ns - 1] == x) {
-                int i;
-                for (i = 0; i < ns - 1; i++) {
-                    if (pattern[i] != pattern[state - ns + 1 + i]) {
-                        break;
-                    }
-                }
-                if (i == ns - 1) {
-                    return ns;
-                }
-            }
+    /**
+     * Build DFA from pattern in O(m * d) for d distinct characters. On a mismatch in state j the automaton goes
+     * where it would be after reading pattern[1..j-1] and the character, that is the restart state x
+     * followed by the character, so the row of state j is the row of x except the matching character.
+     */
+    private int[][] buildDfa(char[] pattern) {
+        int width = alphabet.length + 1;
+        int[][] dfa = new int[patternLen + 1][width];
+        dfa[0][column(pattern[0])] = 1;
+        int restart = 0;
+        for (int state = 1; state < patternLen; state++) {
+            int c = column(pattern[state]);
+            System.arraycopy(dfa[restart], 0, dfa[state], 0, width);
+            dfa[state][c] = state + 1;
+            restart = dfa[restart][c];
         }
-        return 0;
+        // after a full match the search goes on from the longest proper border
+        System.arraycopy(dfa[restart], 0, dfa[patternLen], 0, width);
+        return dfa;
     }
 }
@@ -0,0 +1,67 @@
+package ilya.mp.substring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Boyer-Moore-Horspool algorithm: the window always moves by the bad-character shift
+ * of its last text character, whatever position the mismatch was found at.
+ * A single table lookup per window makes it fast on large alphabets and short patterns.
+ *
+ * Characters are put into ALPHABET_SIZE buckets by their low byte, a collision only makes a shift shorter.
+ */
+public class Horspool implements SubstringMatcher {
+    private static final int ALPHABET_SIZE = 256;
+    private static final int MASK = ALPHABET_SIZE - 1;
+
+    private final char[] pattern;
+    // distance from the rightmost occurrence of c in pattern[0..m-2] to the end of the pattern
+    private final int[] shift;
+
+    private Horspool(char[] pattern) {
+        int m = pattern.length;
+        this.pattern = pattern;
+        this.shift = new int[ALPHABET_SIZE];
+        Arrays.fill(shift, m);
+        for (int j = 0; j < m - 1; j++) {
+            shift[pattern[j] & MASK] = m - 1 - j;
+        }
+    }
+
+    /**
+     * Preprocess the pattern once for searching in many texts.
+     *
+     * @throws IllegalArgumentException in case if pattern is null or empty.
+     */
+    public static SubstringMatcher compile(char[] pattern) {
+        return new Horspool(Patterns.copyOf(pattern));
+    }
+
+    /**
+     * Returns the indexes of the occurrences of the pattern string in the text string.
+     *
+     * @return empty array in case if text doesn't contains pattern and array of indexes in another case.
+     */
+    public static List<Integer> search(char[] text, char[] pattern) {
+        return compile(pattern).search(text);
+    }
+
+    @Override
+    public List<Integer> search(char[] text) {
+        List<Integer> idxes = new ArrayList<>();
+        int patternLength = pattern.length;
+        int textLength = text.length;
+
+        for (int i = 0; i <= textLength - patternLength; i += shift[text[i + patternLength - 1] & MASK]) {
+            int j = patternLength - 1;
+            while (j >= 0 && pattern[j] == text[i + j]) {
+                j--;
+            }
+            if (j < 0) {
+                idxes.add(i);
+            }
+        }
+        return idxes;
+    }
+}
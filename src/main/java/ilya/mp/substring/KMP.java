@@ -8,7 +8,26 @@ import java.util.List;
  *  searches for the pattern in the input text using the
  *  KMP algorithm.
  */
-public class KMP {
+public class KMP implements SubstringMatcher {
+
+    private final char[] pattern;
+    // the longest prefix suffix values for pattern
+    private final int[] lps;
+
+    private KMP(char[] pattern) {
+        this.pattern = pattern;
+        this.lps = new int[pattern.length];
+        computeLPSArray(pattern, pattern.length, lps);
+    }
+
+    /**
+     * Preprocess the pattern once for searching in many texts.
+     *
+     * @throws IllegalArgumentException in case if pattern is null or empty.
+     */
+    public static SubstringMatcher compile(char[] pattern) {
+        return new KMP(Patterns.copyOf(pattern));
+    }
 
     /**
      * Returns the indexes of the occurrences of the pattern string in the text string.
@@ -16,18 +35,16 @@ public class KMP {
      * @return empty array in case if text doesn't contains pattern and array of indexes in another case.
      */
     public static List<Integer> search(char[] text, char[] pattern) {
+        return compile(pattern).search(text);
+    }
+
+    @Override
+    public List<Integer> search(char[] text) {
         List<Integer> idxes = new ArrayList<>();
         int patternLen = pattern.length;
         int textLen = text.length;
-
-        // create lps[] that will hold the longest
-        // prefix suffix values for pattern
-        int[] lps = new int[patternLen];
         int j = 0; // index for pat[]
 
-        // Preprocess the pattern (calculate lps[] array)
-        computeLPSArray(pattern, patternLen, lps);
-
         int i = 0; // index for text[]
         while (i < textLen) {
             if (pattern[j] == text[i]) {
@@ -0,0 +1,25 @@
+package ilya.mp.substring;
+
+/**
+ * Checks shared by the compile methods of the matchers.
+ */
+final class Patterns {
+
+    private Patterns() {
+    }
+
+    /**
+     * Matchers keep their own copy of the pattern, so changes of the caller's array do not affect them.
+     *
+     * @throws IllegalArgumentException in case if pattern is null or empty.
+     */
+    static char[] copyOf(char[] pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("Pattern cannot be null!");
+        }
+        if (pattern.length == 0) {
+            throw new IllegalArgumentException("Pattern cannot be empty!");
+        }
+        return pattern.clone();
+    }
+}
@@ -3,19 +3,42 @@ package ilya.mp.substring;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Reads in two strings, the pattern and the input text, and
  * searches for the pattern in the input text using the
  * Las Vegas version of the Rabin-Karp algorithm.
  */
-public class RabinKarp {
-    private static final int ALPHABET_SIZE = 256; 
-    
-    private static long patternHash;
-    private static long q;          // a large prime, small enough to avoid long overflow
-    private static long RM;         // ALPHABET_SIZE^(M-1) % Q
+public class RabinKarp implements SubstringMatcher {
+    private static final int ALPHABET_SIZE = 256;
+
+    private final char[] pattern;
+    private final long patternHash;
+    private final long q;          // a large prime, small enough to avoid long overflow
+    private final long RM;         // ALPHABET_SIZE^(M-1) % Q
+
+    private RabinKarp(char[] pattern) {
+        this.pattern = pattern;
+        this.q = longRandomPrime();
+
+        // precompute ALPHABET_SIZE ^ (m - 1) % q for use in removing leading digit
+        long rm = 1;
+        for (int i = 1; i <= pattern.length - 1; i++) {
+            rm = (ALPHABET_SIZE * rm) % q;
+        }
+        this.RM = rm;
+        this.patternHash = hash(pattern, pattern.length);
+    }
+
+    /**
+     * Preprocess the pattern once for searching in many texts.
+     *
+     * @throws IllegalArgumentException in case if pattern is null or empty.
+     */
+    public static SubstringMatcher compile(char[] pattern) {
+        return new RabinKarp(Patterns.copyOf(pattern));
+    }
 
     /**
      * Returns the indexes of the occurrences of the pattern string in the text string.
@@ -23,17 +46,21 @@ public class RabinKarp {
      * @return empty array in case if text doesn't contains pattern and array of indexes in another case.
      */
     public static List<Integer> search(char[] text, char[] pattern) {
-        preprocessPattern(pattern);
+        return compile(pattern).search(text);
+    }
+
+    @Override
+    public List<Integer> search(char[] text) {
         List<Integer> idxes = new ArrayList<>();
         int textLen = text.length;
         int patternLen = pattern.length;
         if (textLen < patternLen) {
-            return new ArrayList<>();
+            return idxes;
         }
         long textHash = hash(text, patternLen);
 
         // check for match at offset 0
-        if ((patternHash == textHash) && check(text, pattern,0)) {
+        if ((patternHash == textHash) && check(text, 0)) {
             idxes.add(0);
         }
 
@@ -45,26 +72,15 @@ public class RabinKarp {
 
             // match
             int offset = i - patternLen + 1;
-            if ((patternHash == textHash) && check(text, pattern, offset)) {
+            if ((patternHash == textHash) && check(text, offset)) {
                 idxes.add(offset);
             }
         }
         return idxes;
     }
 
-    private static void preprocessPattern(char[] pattern) {
-        q = longRandomPrime();
-
-        // precompute ALPHABET_SIZE ^ (m - 1) % q for use in removing leading digit
-        RM = 1;
-        for (int i = 1; i <= pattern.length -1; i++) {
-            RM = (ALPHABET_SIZE * RM) % q;
-        }
-        patternHash = hash(pattern, pattern.length);
-    }
-
     // Compute hash for key[0..m-1].
-    private static long hash(char[] key, int m) {
+    private long hash(char[] key, int m) {
         long h = 0;
         for (int j = 0; j < m; j++) {
             h = (ALPHABET_SIZE * h + key[j]) % q;
@@ -73,7 +89,7 @@ public class RabinKarp {
     }
 
     // Las Vegas version: does pat[] match text[i..i-m+1]
-    private static boolean check(char[] text, char[] pattern, int i) {
+    private boolean check(char[] text, int i) {
         for (int j = 0; j < pattern.length; j++) {
             if (pattern[j] != text[i + j]) {
                 return false;
@@ -84,7 +100,7 @@ public class RabinKarp {
 
     // a random 31-bit prime
     private static long longRandomPrime() {
-        BigInteger prime = BigInteger.probablePrime(31, new Random());
+        BigInteger prime = BigInteger.probablePrime(31, ThreadLocalRandom.current());
         return prime.longValue();
     }
 }
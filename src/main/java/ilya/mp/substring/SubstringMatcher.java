@@ -0,0 +1,18 @@
+package ilya.mp.substring;
+
+import java.util.List;
+
+/**
+ * Pattern preprocessed by one of the substring search algorithms.
+ * Matchers are immutable, so one compiled pattern can be searched in any number of texts
+ * by any number of threads at the same time without preprocessing it again.
+ */
+public interface SubstringMatcher {
+
+    /**
+     * Returns the indexes of the occurrences of the pattern in the text string.
+     *
+     * @return empty list in case if text doesn't contain pattern and list of indexes in ascending order in another case.
+     */
+    List<Integer> search(char[] text);
+}
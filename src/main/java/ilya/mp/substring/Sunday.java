@@ -0,0 +1,72 @@
+package ilya.mp.substring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sunday's quick search: the shift is taken by the text character right after the window,
+ * which is always part of the next window, so shifts can be one longer than in Horspool.
+ * The window itself may be compared in any order, here from left to right.
+ *
+ * Characters are put into ALPHABET_SIZE buckets by their low byte, a collision only makes a shift shorter.
+ */
+public class Sunday implements SubstringMatcher {
+    private static final int ALPHABET_SIZE = 256;
+    private static final int MASK = ALPHABET_SIZE - 1;
+
+    private final char[] pattern;
+    // distance from the rightmost occurrence of c in the pattern to the position after the pattern
+    private final int[] shift;
+
+    private Sunday(char[] pattern) {
+        int m = pattern.length;
+        this.pattern = pattern;
+        this.shift = new int[ALPHABET_SIZE];
+        Arrays.fill(shift, m + 1);
+        for (int j = 0; j < m; j++) {
+            shift[pattern[j] & MASK] = m - j;
+        }
+    }
+
+    /**
+     * Preprocess the pattern once for searching in many texts.
+     *
+     * @throws IllegalArgumentException in case if pattern is null or empty.
+     */
+    public static SubstringMatcher compile(char[] pattern) {
+        return new Sunday(Patterns.copyOf(pattern));
+    }
+
+    /**
+     * Returns the indexes of the occurrences of the pattern string in the text string.
+     *
+     * @return empty array in case if text doesn't contains pattern and array of indexes in another case.
+     */
+    public static List<Integer> search(char[] text, char[] pattern) {
+        return compile(pattern).search(text);
+    }
+
+    @Override
+    public List<Integer> search(char[] text) {
+        List<Integer> idxes = new ArrayList<>();
+        int patternLength = pattern.length;
+        int textLength = text.length;
+
+        int i = 0;
+        while (i <= textLength - patternLength) {
+            int j = 0;
+            while (j < patternLength && pattern[j] == text[i + j]) {
+                j++;
+            }
+            if (j == patternLength) {
+                idxes.add(i);
+            }
+            if (i + patternLength == textLength) {
+                break;
+            }
+            i += shift[text[i + patternLength] & MASK];
+        }
+        return idxes;
+    }
+}
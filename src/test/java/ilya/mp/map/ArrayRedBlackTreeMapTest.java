@@ -0,0 +1,148 @@
+package ilya.mp.map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class ArrayRedBlackTreeMapTest {
+
+    @Test
+    public void putAndGetTest() {
+        ArrayRedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals(12, tree.getSize());
+        Assert.assertEquals(Integer.valueOf(27), tree.get("b"));
+        Assert.assertNull(tree.get("non-existing-key"));
+        Assert.assertEquals("abcfghmqrtwy", keysOf(tree));
+        Assert.assertTrue(tree.isValidRedBlackTree());
+    }
+
+    @Test
+    public void putExistingKeyTest() {
+        ArrayRedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        tree.put("b", 1);
+        Assert.assertEquals(Integer.valueOf(1), tree.get("b"));
+        Assert.assertEquals(12, tree.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putNullTest() {
+        ArrayRedBlackTreeMap<String, Integer> tree = new ArrayRedBlackTreeMap<>();
+        tree.put(null, 21);
+    }
+
+    @Test
+    public void removeTest() {
+        ArrayRedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals(Integer.valueOf(23), tree.remove("r"));
+        Assert.assertEquals(Integer.valueOf(27), tree.remove("b"));
+        Assert.assertNull(tree.remove("NonExistingKey"));
+        Assert.assertEquals(10, tree.getSize());
+        Assert.assertEquals("acfghmqtwy", keysOf(tree));
+        Assert.assertTrue(tree.isValidRedBlackTree());
+    }
+
+    @Test
+    public void clearTest() {
+        ArrayRedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        tree.clear();
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertFalse(tree.containsKey("b"));
+        tree.put("s", 1);
+        Assert.assertEquals("s", keysOf(tree));
+    }
+
+    @Test
+    public void iteratorRemoveTest() {
+        ArrayRedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Iterator<Map.Entry<String, Integer>> iterator = tree.iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next().getKey();
+            if ("r".equals(key) || "b".equals(key) || "g".equals(key)) {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals(9, tree.getSize());
+        Assert.assertEquals("acfhmqtwy", keysOf(tree));
+        Assert.assertTrue(tree.isValidRedBlackTree());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void iteratorEmptyTreeNextTest() {
+        new ArrayRedBlackTreeMap<String, Integer>().iterator().next();
+    }
+
+    @Test
+    public void customDescendingComparatorTest() {
+        ArrayRedBlackTreeMap<Integer, String> tree = new ArrayRedBlackTreeMap<>(Comparator.<Integer>reverseOrder());
+        tree.put(1, "1");
+        tree.put(2, "2");
+        tree.put(3, "3");
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, String> entry : tree) {
+            sb.append(entry.getValue());
+        }
+        Assert.assertEquals("321", sb.toString());
+    }
+
+    @Test
+    public void randomOperationsTest() {
+        Random random = new Random(36);
+        ArrayRedBlackTreeMap<Integer, Integer> tree = new ArrayRedBlackTreeMap<>();
+        TreeMap<Integer, Integer> reference = new TreeMap<>();
+
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(reference.remove(key), tree.remove(key));
+            } else {
+                reference.put(key, i);
+                tree.put(key, i);
+            }
+        }
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        Assert.assertEquals(reference.size(), tree.getSize());
+        Iterator<Map.Entry<Integer, Integer>> expected = reference.entrySet().iterator();
+        for (Map.Entry<Integer, Integer> entry : tree) {
+            Assert.assertEquals(expected.next(), entry);
+        }
+        Assert.assertFalse(expected.hasNext());
+    }
+
+    private String keysOf(ArrayRedBlackTreeMap<String, Integer> tree) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : tree) {
+            sb.append(entry.getKey());
+        }
+        return sb.toString();
+    }
+
+    private ArrayRedBlackTreeMap<String, Integer> generateBigTree() {
+        ArrayRedBlackTreeMap<String, Integer> tree = new ArrayRedBlackTreeMap<>();
+
+        tree.put("t", 21);
+        tree.put("g", 22);
+        tree.put("r", 23);
+        tree.put("y", 24);
+        tree.put("a", 25);
+        tree.put("q", 26);
+        tree.put("b", 27);
+        tree.put("c", 28);
+        tree.put("w", 29);
+        tree.put("h", 30);
+        tree.put("m", 31);
+        tree.put("f", 32);
+        return tree;
+    }
+}
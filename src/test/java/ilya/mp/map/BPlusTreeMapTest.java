@@ -0,0 +1,182 @@
+package ilya.mp.map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class BPlusTreeMapTest {
+
+    @Test
+    public void putAndGetTest() {
+        BPlusTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals(12, tree.getSize());
+        Assert.assertEquals(Integer.valueOf(27), tree.get("b"));
+        Assert.assertNull(tree.get("non-existing-key"));
+        Assert.assertTrue(tree.containsKey("m"));
+        Assert.assertEquals("abcfghmqrtwy", keysOf(tree));
+        Assert.assertTrue(tree.isValidTree());
+    }
+
+    @Test
+    public void putExistingKeyTest() {
+        BPlusTreeMap<String, Integer> tree = generateBigTree();
+
+        tree.put("b", 1);
+        Assert.assertEquals(Integer.valueOf(1), tree.get("b"));
+        Assert.assertEquals(12, tree.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putNullTest() {
+        BPlusTreeMap<String, Integer> tree = new BPlusTreeMap<>();
+        tree.put(null, 21);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void smallFanOutTest() {
+        new BPlusTreeMap<String, Integer>(2, null);
+    }
+
+    @Test
+    public void removeTest() {
+        BPlusTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals(Integer.valueOf(23), tree.remove("r"));
+        Assert.assertEquals(Integer.valueOf(27), tree.remove("b"));
+        Assert.assertNull(tree.remove("NonExistingKey"));
+        Assert.assertEquals(10, tree.getSize());
+        Assert.assertEquals("acfghmqtwy", keysOf(tree));
+        Assert.assertTrue(tree.isValidTree());
+    }
+
+    @Test
+    public void clearTest() {
+        BPlusTreeMap<String, Integer> tree = generateBigTree();
+
+        tree.clear();
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertFalse(tree.containsKey("b"));
+        tree.put("s", 1);
+        Assert.assertEquals("s", keysOf(tree));
+    }
+
+    @Test
+    public void rangeTest() {
+        BPlusTreeMap<String, Integer> tree = generateBigTree();
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : tree.range("d", "r")) {
+            sb.append(entry.getKey());
+        }
+        Assert.assertEquals("fghmq", sb.toString());
+        Assert.assertFalse(tree.range("z", "zz").iterator().hasNext());
+        Assert.assertFalse(tree.range("r", "a").iterator().hasNext());
+    }
+
+    @Test
+    public void iteratorRemoveTest() {
+        BPlusTreeMap<String, Integer> tree = generateBigTree();
+
+        Iterator<Map.Entry<String, Integer>> iterator = tree.iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next().getKey();
+            if ("r".equals(key) || "b".equals(key) || "g".equals(key) || "c".equals(key)) {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals(8, tree.getSize());
+        Assert.assertEquals("afhmqtwy", keysOf(tree));
+        Assert.assertTrue(tree.isValidTree());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void iteratorEmptyTreeNextTest() {
+        new BPlusTreeMap<String, Integer>().iterator().next();
+    }
+
+    @Test
+    public void customDescendingComparatorTest() {
+        BPlusTreeMap<Integer, String> tree = new BPlusTreeMap<>(3, Comparator.<Integer>reverseOrder());
+        for (int i = 1; i <= 9; i++) {
+            tree.put(i, String.valueOf(i));
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, String> entry : tree) {
+            sb.append(entry.getValue());
+        }
+        Assert.assertEquals("987654321", sb.toString());
+        Assert.assertTrue(tree.isValidTree());
+    }
+
+    @Test
+    public void randomOperationsTest() {
+        for (int fanOut : new int[]{3, 4, 5, 64}) {
+            Random random = new Random(37);
+            BPlusTreeMap<Integer, Integer> tree = new BPlusTreeMap<>(fanOut, null);
+            TreeMap<Integer, Integer> reference = new TreeMap<>();
+
+            for (int i = 0; i < 20000; i++) {
+                int key = random.nextInt(2000);
+                if (random.nextInt(3) == 0) {
+                    Assert.assertEquals(reference.remove(key), tree.remove(key));
+                } else {
+                    reference.put(key, i);
+                    tree.put(key, i);
+                }
+            }
+            Assert.assertTrue(tree.isValidTree());
+            Assert.assertEquals(reference.size(), tree.getSize());
+            Iterator<Map.Entry<Integer, Integer>> expected = reference.entrySet().iterator();
+            for (Map.Entry<Integer, Integer> entry : tree) {
+                Assert.assertEquals(expected.next(), entry);
+            }
+            Assert.assertFalse(expected.hasNext());
+
+            Iterator<Map.Entry<Integer, Integer>> range = tree.range(500, 1500).iterator();
+            for (Map.Entry<Integer, Integer> entry : reference.subMap(500, 1500).entrySet()) {
+                Assert.assertEquals(entry, range.next());
+            }
+            Assert.assertFalse(range.hasNext());
+
+            for (Integer key : reference.keySet()) {
+                tree.remove(key);
+            }
+            Assert.assertTrue(tree.isEmpty());
+            Assert.assertTrue(tree.isValidTree());
+        }
+    }
+
+    private String keysOf(BPlusTreeMap<String, Integer> tree) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : tree) {
+            sb.append(entry.getKey());
+        }
+        return sb.toString();
+    }
+
+    private BPlusTreeMap<String, Integer> generateBigTree() {
+        BPlusTreeMap<String, Integer> tree = new BPlusTreeMap<>(4, null);
+
+        tree.put("t", 21);
+        tree.put("g", 22);
+        tree.put("r", 23);
+        tree.put("y", 24);
+        tree.put("a", 25);
+        tree.put("q", 26);
+        tree.put("b", 27);
+        tree.put("c", 28);
+        tree.put("w", 29);
+        tree.put("h", 30);
+        tree.put("m", 31);
+        tree.put("f", 32);
+        return tree;
+    }
+}
@@ -0,0 +1,134 @@
+package ilya.mp.map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class IntervalTreeMapTest {
+
+    @Test
+    public void putAndGetTest() {
+        IntervalTreeMap<Integer, String> intervals = generateIntervals();
+
+        Assert.assertEquals(6, intervals.getSize());
+        Assert.assertEquals("b", intervals.get(5, 8));
+        Assert.assertNull(intervals.get(5, 9));
+        intervals.put(5, 8, "B");
+        Assert.assertEquals("B", intervals.get(5, 8));
+        Assert.assertEquals(6, intervals.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putEmptyIntervalTest() {
+        new IntervalTreeMap<Integer, String>().put(3, 3, "a");
+    }
+
+    @Test
+    public void stabTest() {
+        IntervalTreeMap<Integer, String> intervals = generateIntervals();
+
+        Assert.assertEquals("ab", valuesOf(intervals.stab(5)));
+        Assert.assertEquals("bd", valuesOf(intervals.stab(7)));
+        Assert.assertEquals("d", valuesOf(intervals.stab(8)));
+        Assert.assertEquals("", valuesOf(intervals.stab(0)));
+        Assert.assertEquals("", valuesOf(intervals.stab(12)));
+        Assert.assertEquals("e", valuesOf(intervals.stab(19)));
+    }
+
+    @Test
+    public void overlappingTest() {
+        IntervalTreeMap<Integer, String> intervals = generateIntervals();
+
+        Assert.assertEquals("bcd", valuesOf(intervals.overlapping(6, 9)));
+        Assert.assertEquals("", valuesOf(intervals.overlapping(12, 15)));
+        Assert.assertEquals("abcdef", valuesOf(intervals.overlapping(0, 100)));
+
+        StringBuilder sb = new StringBuilder();
+        intervals.overlapping(9, 16, interval -> sb.append(interval.getValue()));
+        Assert.assertEquals("de", sb.toString());
+    }
+
+    @Test
+    public void removeTest() {
+        IntervalTreeMap<Integer, String> intervals = generateIntervals();
+
+        Assert.assertEquals("d", intervals.remove(7, 12));
+        Assert.assertNull(intervals.remove(7, 12));
+        Assert.assertEquals("b", valuesOf(intervals.stab(7)));
+
+        Iterator<IntervalTreeMap.Interval<Integer, String>> iterator = intervals.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getStart() < 6) {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals("cef", valuesOf(intervals));
+    }
+
+    @Test
+    public void randomQueriesTest() {
+        Random random = new Random(41);
+        IntervalTreeMap<Integer, Integer> intervals = new IntervalTreeMap<>();
+        List<int[]> reference = new ArrayList<>();
+
+        for (int i = 0; i < 3000; i++) {
+            int start = random.nextInt(10000);
+            int end = start + 1 + random.nextInt(random.nextBoolean() ? 10 : 1000);
+            if (intervals.get(start, end) == null) {
+                intervals.put(start, end, i);
+                reference.add(new int[]{start, end});
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            int[] removed = reference.remove(random.nextInt(reference.size()));
+            Assert.assertNotNull(intervals.remove(removed[0], removed[1]));
+        }
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(11000);
+            int to = from + 1 + random.nextInt(50);
+            int expectedOverlapping = 0;
+            int expectedStabbed = 0;
+            for (int[] interval : reference) {
+                if (interval[0] < to && interval[1] > from) {
+                    expectedOverlapping++;
+                }
+                if (interval[0] <= from && interval[1] > from) {
+                    expectedStabbed++;
+                }
+            }
+            List<IntervalTreeMap.Interval<Integer, Integer>> overlapping = intervals.overlapping(from, to);
+            Assert.assertEquals(expectedOverlapping, overlapping.size());
+            for (int j = 1; j < overlapping.size(); j++) {
+                Assert.assertTrue(overlapping.get(j - 1).compareTo(overlapping.get(j)) < 0);
+            }
+            Assert.assertEquals(expectedStabbed, intervals.stab(from).size());
+        }
+    }
+
+    private String valuesOf(Iterable<IntervalTreeMap.Interval<Integer, String>> intervals) {
+        StringBuilder sb = new StringBuilder();
+        for (IntervalTreeMap.Interval<Integer, String> interval : intervals) {
+            sb.append(interval.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * a: [1, 6), b: [5, 8), c: [6, 7), d: [7, 12), e: [15, 20), f: [30, 40)
+     */
+    private IntervalTreeMap<Integer, String> generateIntervals() {
+        IntervalTreeMap<Integer, String> intervals = new IntervalTreeMap<>();
+
+        intervals.put(15, 20, "e");
+        intervals.put(5, 8, "b");
+        intervals.put(30, 40, "f");
+        intervals.put(1, 6, "a");
+        intervals.put(7, 12, "d");
+        intervals.put(6, 7, "c");
+        return intervals;
+    }
+}
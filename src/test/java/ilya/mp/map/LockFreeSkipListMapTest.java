@@ -0,0 +1,250 @@
+package ilya.mp.map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LockFreeSkipListMapTest {
+
+    @Test
+    public void putAndGetTest() {
+        LockFreeSkipListMap<String, Integer> map = generateBigMap();
+
+        Assert.assertEquals(12, map.getSize());
+        Assert.assertEquals(Integer.valueOf(27), map.get("b"));
+        Assert.assertNull(map.get("non-existing-key"));
+        Assert.assertEquals("abcfghmqrtwy", keysOf(map));
+        Assert.assertTrue(map.isValidSkipList());
+    }
+
+    @Test
+    public void putExistingKeyTest() {
+        LockFreeSkipListMap<String, Integer> map = generateBigMap();
+
+        map.put("b", 1);
+        Assert.assertEquals(Integer.valueOf(1), map.get("b"));
+        Assert.assertEquals(12, map.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putNullTest() {
+        new LockFreeSkipListMap<String, Integer>().put(null, 21);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putNullValueTest() {
+        new LockFreeSkipListMap<String, Integer>().put("a", null);
+    }
+
+    @Test
+    public void removeTest() {
+        LockFreeSkipListMap<String, Integer> map = generateBigMap();
+
+        Assert.assertEquals(Integer.valueOf(23), map.remove("r"));
+        Assert.assertEquals(Integer.valueOf(27), map.remove("b"));
+        Assert.assertNull(map.remove("NonExistingKey"));
+        Assert.assertEquals(10, map.getSize());
+        Assert.assertEquals("acfghmqtwy", keysOf(map));
+        Assert.assertTrue(map.isValidSkipList());
+    }
+
+    @Test
+    public void clearTest() {
+        LockFreeSkipListMap<String, Integer> map = generateBigMap();
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(0, map.getSize());
+        Assert.assertFalse(map.containsKey("b"));
+        map.put("s", 1);
+        Assert.assertEquals("s", keysOf(map));
+        Assert.assertTrue(map.isValidSkipList());
+    }
+
+    @Test
+    public void navigationTest() {
+        LockFreeSkipListMap<String, Integer> map = generateBigMap();
+
+        Assert.assertEquals("a", map.firstKey());
+        Assert.assertEquals("y", map.lastKey());
+        Assert.assertEquals("c", map.floorKey("d"));
+        Assert.assertEquals("c", map.floorKey("c"));
+        Assert.assertEquals("b", map.lowerKey("c"));
+        Assert.assertEquals("f", map.ceilingKey("d"));
+        Assert.assertEquals("c", map.ceilingKey("c"));
+        Assert.assertEquals("f", map.higherKey("c"));
+        Assert.assertNull(map.lowerKey("a"));
+        Assert.assertNull(map.higherKey("y"));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void firstKeyEmptyMapTest() {
+        new LockFreeSkipListMap<String, Integer>().firstKey();
+    }
+
+    @Test
+    public void iteratorRemoveTest() {
+        LockFreeSkipListMap<String, Integer> map = generateBigMap();
+
+        Iterator<Map.Entry<String, Integer>> iterator = map.iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next().getKey();
+            if ("r".equals(key) || "b".equals(key) || "g".equals(key)) {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals(9, map.getSize());
+        Assert.assertEquals("acfhmqtwy", keysOf(map));
+        Assert.assertTrue(map.isValidSkipList());
+    }
+
+    @Test
+    public void iteratorToleratesModificationTest() {
+        LockFreeSkipListMap<String, Integer> map = generateBigMap();
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : map) {
+            sb.append(entry.getKey());
+            if ("c".equals(entry.getKey())) {
+                // the next entry is already read, later ones are seen
+                map.put("p", 1);
+                map.put("A", 1);
+                map.remove("y");
+            }
+        }
+        Assert.assertEquals("abcfghmpqrtw", sb.toString());
+    }
+
+    @Test
+    public void customDescendingComparatorTest() {
+        LockFreeSkipListMap<Integer, String> map = new LockFreeSkipListMap<>(Comparator.<Integer>reverseOrder());
+        map.put(1, "1");
+        map.put(2, "2");
+        map.put(3, "3");
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, String> entry : map) {
+            sb.append(entry.getValue());
+        }
+        Assert.assertEquals("321", sb.toString());
+        Assert.assertEquals(Integer.valueOf(3), map.firstKey());
+        Assert.assertEquals(Integer.valueOf(2), map.higherKey(3));
+    }
+
+    @Test
+    public void randomOperationsTest() {
+        Random random = new Random(39);
+        LockFreeSkipListMap<Integer, Integer> map = new LockFreeSkipListMap<>();
+        TreeMap<Integer, Integer> reference = new TreeMap<>();
+
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(reference.remove(key), map.remove(key));
+            } else {
+                reference.put(key, i);
+                map.put(key, i);
+            }
+            if (i % 100 == 0) {
+                Assert.assertEquals(reference.floorKey(key), map.floorKey(key));
+                Assert.assertEquals(reference.higherKey(key), map.higherKey(key));
+            }
+        }
+        Assert.assertTrue(map.isValidSkipList());
+        Assert.assertEquals(reference.size(), map.getSize());
+        Iterator<Map.Entry<Integer, Integer>> expected = reference.entrySet().iterator();
+        for (Map.Entry<Integer, Integer> entry : map) {
+            Assert.assertEquals(expected.next(), entry);
+        }
+        Assert.assertFalse(expected.hasNext());
+    }
+
+    @Test
+    public void concurrentOperationsTest() throws Exception {
+        int threads = 8;
+        int keysPerThread = 5000;
+        LockFreeSkipListMap<Integer, Integer> map = new LockFreeSkipListMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                Random random = new Random(thread);
+                // own keys are added and odd ones removed, shared keys are fought over
+                for (int i = 0; i < keysPerThread; i++) {
+                    int key = i * threads + thread;
+                    map.put(key, thread);
+                    map.put(-1 - random.nextInt(100), thread);
+                    map.remove(-1 - random.nextInt(100));
+                    if (map.get(key) == null) {
+                        throw new AssertionError("Lost key " + key);
+                    }
+                }
+                for (int i = 1; i < keysPerThread; i += 2) {
+                    if (map.remove(i * threads + thread) == null) {
+                        throw new AssertionError("Lost key " + (i * threads + thread));
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertTrue(map.isValidSkipList());
+        int count = 0;
+        for (Map.Entry<Integer, Integer> entry : map) {
+            if (entry.getKey() >= 0) {
+                Assert.assertEquals(0, entry.getKey() / threads % 2);
+                count++;
+            }
+        }
+        Assert.assertEquals(threads * keysPerThread / 2, count);
+    }
+
+    private String keysOf(LockFreeSkipListMap<String, Integer> map) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : map) {
+            sb.append(entry.getKey());
+        }
+        return sb.toString();
+    }
+
+    private LockFreeSkipListMap<String, Integer> generateBigMap() {
+        LockFreeSkipListMap<String, Integer> map = new LockFreeSkipListMap<>();
+
+        map.put("t", 21);
+        map.put("g", 22);
+        map.put("r", 23);
+        map.put("y", 24);
+        map.put("a", 25);
+        map.put("q", 26);
+        map.put("b", 27);
+        map.put("c", 28);
+        map.put("w", 29);
+        map.put("h", 30);
+        map.put("m", 31);
+        map.put("f", 32);
+        return map;
+    }
+}
@@ -0,0 +1,167 @@
+package ilya.mp.map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class LongTreeMapTest {
+
+    @Test
+    public void putAndGetTest() {
+        LongTreeMap<String> map = generateMap();
+
+        Assert.assertEquals(8, map.getSize());
+        Assert.assertEquals("30", map.get(30));
+        Assert.assertNull(map.get(31));
+        Assert.assertTrue(map.containsKey(-5));
+        map.put(30, "thirty");
+        Assert.assertEquals("thirty", map.get(30));
+        Assert.assertEquals(8, map.getSize());
+        Assert.assertEquals("-10 -5 0 10 20 30 40 50", keysOf(map.cursor()));
+        Assert.assertTrue(map.isValidRedBlackTree());
+    }
+
+    @Test
+    public void removeTest() {
+        LongTreeMap<String> map = generateMap();
+
+        Assert.assertEquals("20", map.remove(20));
+        Assert.assertNull(map.remove(20));
+        Assert.assertEquals("-10", map.remove(-10));
+        Assert.assertEquals("-5 0 10 30 40 50", keysOf(map.cursor()));
+        Assert.assertTrue(map.isValidRedBlackTree());
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        map.put(Long.MIN_VALUE, "min");
+        Assert.assertEquals(Long.MIN_VALUE, map.firstKey());
+    }
+
+    @Test
+    public void navigationTest() {
+        LongTreeMap<String> map = generateMap();
+
+        Assert.assertEquals(-10, map.firstKey());
+        Assert.assertEquals(50, map.lastKey());
+        Assert.assertEquals(20, map.floorKey(25));
+        Assert.assertEquals(20, map.floorKey(20));
+        Assert.assertEquals(10, map.lowerKey(20));
+        Assert.assertEquals(30, map.ceilingKey(25));
+        Assert.assertEquals(20, map.ceilingKey(20));
+        Assert.assertEquals(30, map.higherKey(20));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void noHigherKeyTest() {
+        generateMap().higherKey(50);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void noFloorKeyTest() {
+        generateMap().floorKey(-11);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void firstKeyEmptyMapTest() {
+        new LongTreeMap<String>().firstKey();
+    }
+
+    @Test
+    public void rangeTest() {
+        LongTreeMap<String> map = generateMap();
+
+        Assert.assertEquals("0 10 20", keysOf(map.range(-1, 30)));
+        Assert.assertEquals("10 20 30", keysOf(map.range(0, false, 30, true)));
+        Assert.assertEquals("", keysOf(map.range(51, 100)));
+        Assert.assertEquals("", keysOf(map.range(20, 20)));
+        Assert.assertEquals("20", keysOf(map.range(20, true, 20, true)));
+        Assert.assertEquals("50", keysOf(map.range(41, Long.MAX_VALUE)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeWrongBoundsTest() {
+        generateMap().range(10, 0);
+    }
+
+    @Test
+    public void cursorRemoveAndSetValueTest() {
+        LongTreeMap<String> map = generateMap();
+
+        LongTreeMap<String>.Cursor cursor = map.range(0, 40);
+        while (cursor.next()) {
+            if (cursor.key() % 20 == 0) {
+                cursor.remove();
+            } else {
+                cursor.setValue("odd");
+            }
+        }
+        Assert.assertEquals("-10 -5 10 30 40 50", keysOf(map.cursor()));
+        Assert.assertEquals("odd", map.get(30));
+        Assert.assertEquals(6, map.getSize());
+        Assert.assertTrue(map.isValidRedBlackTree());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cursorBeforeNextTest() {
+        generateMap().cursor().key();
+    }
+
+    @Test
+    public void randomOperationsTest() {
+        Random random = new Random(47);
+        LongTreeMap<Integer> map = new LongTreeMap<>();
+        TreeMap<Long, Integer> reference = new TreeMap<>();
+
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(3000) * 1_000_000_007L;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(reference.remove(key), map.remove(key));
+            } else {
+                reference.put(key, i);
+                map.put(key, i);
+            }
+            if (i % 100 == 0 && !reference.isEmpty()) {
+                Long floor = reference.floorKey(key);
+                if (floor != null) {
+                    Assert.assertEquals(floor.longValue(), map.floorKey(key));
+                }
+                Long higher = reference.higherKey(key);
+                if (higher != null) {
+                    Assert.assertEquals(higher.longValue(), map.higherKey(key));
+                }
+            }
+        }
+        Assert.assertTrue(map.isValidRedBlackTree());
+        Assert.assertEquals(reference.size(), map.getSize());
+        LongTreeMap<Integer>.Cursor cursor = map.cursor();
+        for (Map.Entry<Long, Integer> entry : reference.entrySet()) {
+            Assert.assertTrue(cursor.next());
+            Assert.assertEquals(entry.getKey().longValue(), cursor.key());
+            Assert.assertEquals(entry.getValue(), cursor.value());
+        }
+        Assert.assertFalse(cursor.next());
+    }
+
+    private String keysOf(LongTreeMap<String>.Cursor cursor) {
+        StringBuilder sb = new StringBuilder();
+        while (cursor.next()) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(cursor.key());
+        }
+        return sb.toString();
+    }
+
+    private LongTreeMap<String> generateMap() {
+        LongTreeMap<String> map = new LongTreeMap<>(4);
+
+        for (long key : new long[]{30, 10, 50, -5, 20, 0, 40, -10}) {
+            map.put(key, String.valueOf(key));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,222 @@
+package ilya.mp.map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class PersistentRedBlackTreeMapTest {
+
+    @Test
+    public void putAndGetTest() {
+        PersistentRedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals(12, tree.getSize());
+        Assert.assertEquals(Integer.valueOf(27), tree.get("b"));
+        Assert.assertNull(tree.get("non-existing-key"));
+        Assert.assertEquals("abcfghmqrtwy", keysOf(tree));
+        Assert.assertTrue(tree.isValidRedBlackTree());
+    }
+
+    @Test
+    public void putExistingKeyTest() {
+        PersistentRedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        tree.put("b", 1);
+        Assert.assertEquals(Integer.valueOf(1), tree.get("b"));
+        Assert.assertEquals(12, tree.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putNullTest() {
+        new PersistentRedBlackTreeMap<String, Integer>().put(null, 21);
+    }
+
+    @Test
+    public void removeTest() {
+        PersistentRedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals(Integer.valueOf(23), tree.remove("r"));
+        Assert.assertEquals(Integer.valueOf(27), tree.remove("b"));
+        Assert.assertNull(tree.remove("NonExistingKey"));
+        Assert.assertEquals(10, tree.getSize());
+        Assert.assertEquals("acfghmqtwy", keysOf(tree));
+        Assert.assertTrue(tree.isValidRedBlackTree());
+    }
+
+    @Test
+    public void snapshotTest() {
+        PersistentRedBlackTreeMap<String, Integer> tree = generateBigTree();
+        PersistentRedBlackTreeMap<String, Integer> snapshot = tree.snapshot();
+
+        tree.remove("r");
+        tree.put("b", 1);
+        tree.put("z", 2);
+        snapshot.put("d", 3);
+
+        Assert.assertEquals("abcfghmqtwyz", keysOf(tree));
+        Assert.assertEquals("abcdfghmqrtwy", keysOf(snapshot));
+        Assert.assertEquals(Integer.valueOf(27), snapshot.get("b"));
+        Assert.assertEquals(Integer.valueOf(1), tree.get("b"));
+        Assert.assertFalse(tree.containsKey("d"));
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        Assert.assertTrue(snapshot.isValidRedBlackTree());
+
+        tree.clear();
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertEquals(13, snapshot.getSize());
+    }
+
+    @Test
+    public void iteratorSeesVersionOfCreationTest() {
+        PersistentRedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        StringBuilder sb = new StringBuilder();
+        Iterator<Map.Entry<String, Integer>> iterator = tree.iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next().getKey();
+            sb.append(key);
+            if ("r".equals(key) || "b".equals(key) || "g".equals(key)) {
+                iterator.remove();
+            }
+            tree.put("z", 0);
+        }
+        Assert.assertEquals("abcfghmqrtwy", sb.toString());
+        Assert.assertEquals("acfhmqtwyz", keysOf(tree));
+        Assert.assertTrue(tree.isValidRedBlackTree());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void iteratorEmptyTreeNextTest() {
+        new PersistentRedBlackTreeMap<String, Integer>().iterator().next();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void entrySetValueTest() {
+        generateBigTree().iterator().next().setValue(1);
+    }
+
+    @Test
+    public void customDescendingComparatorTest() {
+        PersistentRedBlackTreeMap<Integer, String> tree = new PersistentRedBlackTreeMap<>(Comparator.<Integer>reverseOrder());
+        tree.put(1, "1");
+        tree.put(2, "2");
+        tree.put(3, "3");
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, String> entry : tree) {
+            sb.append(entry.getValue());
+        }
+        Assert.assertEquals("321", sb.toString());
+    }
+
+    @Test
+    public void randomOperationsTest() {
+        Random random = new Random(38);
+        PersistentRedBlackTreeMap<Integer, Integer> tree = new PersistentRedBlackTreeMap<>();
+        TreeMap<Integer, Integer> reference = new TreeMap<>();
+        List<PersistentRedBlackTreeMap<Integer, Integer>> snapshots = new ArrayList<>();
+        List<TreeMap<Integer, Integer>> expectedSnapshots = new ArrayList<>();
+
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(reference.remove(key), tree.remove(key));
+            } else {
+                reference.put(key, i);
+                tree.put(key, i);
+            }
+            if (i % 2000 == 0) {
+                snapshots.add(tree.snapshot());
+                expectedSnapshots.add(new TreeMap<>(reference));
+            }
+        }
+        snapshots.add(tree);
+        expectedSnapshots.add(reference);
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertSameEntries(expectedSnapshots.get(i), snapshots.get(i));
+        }
+    }
+
+    @Test
+    public void readersWhileWriterMutatesTest() throws InterruptedException {
+        PersistentRedBlackTreeMap<Integer, Integer> tree = new PersistentRedBlackTreeMap<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                PersistentRedBlackTreeMap<Integer, Integer> snapshot = tree.snapshot();
+                int count = 0;
+                Integer previous = null;
+                for (Map.Entry<Integer, Integer> entry : snapshot) {
+                    if (previous != null && previous >= entry.getKey()) {
+                        failed.set(true);
+                    }
+                    previous = entry.getKey();
+                    count++;
+                }
+                if (count != snapshot.getSize()) {
+                    failed.set(true);
+                }
+            }
+        });
+        reader.start();
+        Random random = new Random(38);
+        for (int i = 0; i < 50000; i++) {
+            int key = random.nextInt(1000);
+            if (random.nextBoolean()) {
+                tree.put(key, i);
+            } else {
+                tree.remove(key);
+            }
+        }
+        done.set(true);
+        reader.join();
+        Assert.assertFalse(failed.get());
+        Assert.assertTrue(tree.isValidRedBlackTree());
+    }
+
+    private void assertSameEntries(TreeMap<Integer, Integer> expected, PersistentRedBlackTreeMap<Integer, Integer> tree) {
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        Assert.assertEquals(expected.size(), tree.getSize());
+        Iterator<Map.Entry<Integer, Integer>> iterator = expected.entrySet().iterator();
+        for (Map.Entry<Integer, Integer> entry : tree) {
+            Assert.assertEquals(iterator.next(), entry);
+        }
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    private String keysOf(PersistentRedBlackTreeMap<String, Integer> tree) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : tree) {
+            sb.append(entry.getKey());
+        }
+        return sb.toString();
+    }
+
+    private PersistentRedBlackTreeMap<String, Integer> generateBigTree() {
+        PersistentRedBlackTreeMap<String, Integer> tree = new PersistentRedBlackTreeMap<>();
+
+        tree.put("t", 21);
+        tree.put("g", 22);
+        tree.put("r", 23);
+        tree.put("y", 24);
+        tree.put("a", 25);
+        tree.put("q", 26);
+        tree.put("b", 27);
+        tree.put("c", 28);
+        tree.put("w", 29);
+        tree.put("h", 30);
+        tree.put("m", 31);
+        tree.put("f", 32);
+        return tree;
+    }
+}
@@ -0,0 +1,122 @@
+package ilya.mp.map;
+
+import ilya.mp.priority_queue.ElementSerializer;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Random;
+
+public class RedBlackTreeMapSerializerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fileRoundTripTest() throws IOException {
+        RedBlackTreeMapSerializer<Long, String> serializer = new RedBlackTreeMapSerializer<>(ElementSerializer.LONG, ElementSerializer.STRING);
+        RedBlackTreeMap<Long, String> map = new RedBlackTreeMap<>();
+        Random random = new Random(45);
+        for (int i = 0; i < 10000; i++) {
+            long key = random.nextLong();
+            map.put(key, Long.toString(key, 36));
+        }
+
+        Path file = folder.newFile().toPath();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            serializer.write(map, channel);
+        }
+        RedBlackTreeMap<Long, String> loaded;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            loaded = serializer.read(channel);
+        }
+
+        Assert.assertTrue(loaded.isValidRedBlackTree());
+        Assert.assertEquals(map.getSize(), loaded.getSize());
+        Iterator<RedBlackTreeMap.Node<Long, String>> expected = map.iterator();
+        for (RedBlackTreeMap.Node<Long, String> node : loaded) {
+            RedBlackTreeMap.Node<Long, String> original = expected.next();
+            Assert.assertEquals(original.getKey(), node.getKey());
+            Assert.assertEquals(original.getValue(), node.getValue());
+        }
+        // loaded map is an ordinary map
+        loaded.put(0L, "zero");
+        Assert.assertEquals("zero", loaded.get(0L));
+        Assert.assertTrue(loaded.isValidRedBlackTree());
+    }
+
+    @Test
+    public void emptyMapTest() throws IOException {
+        RedBlackTreeMapSerializer<Integer, Integer> serializer = new RedBlackTreeMapSerializer<>(ElementSerializer.INTEGER, ElementSerializer.INTEGER);
+
+        RedBlackTreeMap<Integer, Integer> loaded = serializer.read(channelOf(bytesOf(serializer, new RedBlackTreeMap<>())));
+        Assert.assertTrue(loaded.isEmpty());
+        Assert.assertTrue(loaded.isValidRedBlackTree());
+    }
+
+    @Test
+    public void comparatorAndMonoidTest() throws IOException {
+        RedBlackTreeMapSerializer<Integer, Integer> serializer = new RedBlackTreeMapSerializer<>(ElementSerializer.INTEGER, ElementSerializer.INTEGER);
+        RedBlackTreeMap<Integer, Integer> map = new RedBlackTreeMap<>(Comparator.<Integer>reverseOrder());
+        for (int i = 1; i <= 100; i++) {
+            map.put(i, i);
+        }
+
+        RedBlackTreeMap<Integer, Integer> loaded = serializer.read(channelOf(bytesOf(serializer, map)),
+            Comparator.<Integer>reverseOrder(), Monoid.of(0, Integer::sum));
+        Assert.assertTrue(loaded.isValidRedBlackTree());
+        Assert.assertEquals(Integer.valueOf(100), loaded.firstKey());
+        Assert.assertEquals(Integer.valueOf(5050), loaded.aggregate(100, 1));
+        Assert.assertEquals(Integer.valueOf(15), loaded.aggregate(5, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongComparatorTest() throws IOException {
+        RedBlackTreeMapSerializer<Integer, Integer> serializer = new RedBlackTreeMapSerializer<>(ElementSerializer.INTEGER, ElementSerializer.INTEGER);
+        RedBlackTreeMap<Integer, Integer> map = new RedBlackTreeMap<>();
+        map.put(1, 1);
+        map.put(2, 2);
+
+        serializer.read(channelOf(bytesOf(serializer, map)), Comparator.<Integer>reverseOrder(), null);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedInputTest() throws IOException {
+        RedBlackTreeMapSerializer<Integer, Integer> serializer = new RedBlackTreeMapSerializer<>(ElementSerializer.INTEGER, ElementSerializer.INTEGER);
+        RedBlackTreeMap<Integer, Integer> map = new RedBlackTreeMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put(i, i);
+        }
+
+        byte[] bytes = bytesOf(serializer, map);
+        serializer.read(channelOf(Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+
+    @Test(expected = IOException.class)
+    public void notSavedMapTest() throws IOException {
+        new RedBlackTreeMapSerializer<>(ElementSerializer.INTEGER, ElementSerializer.INTEGER).read(channelOf(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    private static <K extends Comparable<K>, V> byte[] bytesOf(RedBlackTreeMapSerializer<K, V> serializer,
+                                                               RedBlackTreeMap<K, V> map) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(map, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static ReadableByteChannel channelOf(byte[] bytes) {
+        return Channels.newChannel(new ByteArrayInputStream(bytes));
+    }
+}
@@ -3,9 +3,18 @@ package ilya.mp.map;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class RedBlackTreeMapTest {
 
@@ -158,6 +167,56 @@ public class RedBlackTreeMapTest {
         RedBlackTreeMap<String, Integer> copy = new RedBlackTreeMap<>(src);
 
         Assert.assertEquals(src.getSize(), copy.getSize());
+        Assert.assertEquals(src.inorderTraversalString(), copy.inorderTraversalString());
+        Assert.assertEquals(Integer.valueOf(27), copy.get("b"));
+        Assert.assertTrue(copy.isValidRedBlackTree());
+    }
+
+    @Test
+    public void copyConstructorKeepsComparatorTest() {
+        RedBlackTreeMap<Integer, String> src = new RedBlackTreeMap<>(Comparator.<Integer>reverseOrder());
+        src.put(1, "1");
+        src.put(2, "2");
+        src.put(3, "3");
+        RedBlackTreeMap<Integer, String> copy = new RedBlackTreeMap<>(src);
+
+        copy.put(4, "4");
+        Assert.assertEquals("4321", copy.inorderTraversalString());
+        Assert.assertEquals("2", copy.get(2));
+    }
+
+    @Test
+    public void fromSortedTest() {
+        for (int n = 0; n < 70; n++) {
+            Integer[] keys = new Integer[n];
+            String[] values = new String[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = i * 2;
+                values[i] = String.valueOf(i);
+            }
+            RedBlackTreeMap<Integer, String> tree = RedBlackTreeMap.fromSorted(keys, values);
+
+            Assert.assertTrue(tree.isValidRedBlackTree());
+            Assert.assertEquals(n, tree.getSize());
+            for (int i = 0; i < n; i++) {
+                Assert.assertEquals(values[i], tree.get(keys[i]));
+                Assert.assertEquals(keys[i], tree.select(i));
+            }
+            tree.put(-1, "x");
+            tree.remove(0);
+            Assert.assertTrue(tree.isValidRedBlackTree());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromSortedUnsortedKeysTest() {
+        RedBlackTreeMap.fromSorted(new Integer[]{1, 3, 2}, new String[]{"1", "3", "2"});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromSortedNotEnoughEntriesTest() {
+        RedBlackTreeMap<String, Integer> src = generateBigTree();
+        RedBlackTreeMap.fromSorted(src.iterator(), src.getSize() + 1, null);
     }
 
     /**
@@ -263,6 +322,609 @@ public class RedBlackTreeMapTest {
         Assert.assertEquals(expectedTreeView, tree.inorderTraversalString());
     }
 
+    @Test
+    public void firstAndLastKeyTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals("a", tree.firstKey());
+        Assert.assertEquals("y", tree.lastKey());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void firstKeyEmptyTreeTest() {
+        RedBlackTreeMap<String, Integer> tree = new RedBlackTreeMap<>();
+        tree.firstKey();
+    }
+
+    @Test
+    public void floorAndCeilingTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals("h", tree.floorKey("h"));
+        Assert.assertEquals("h", tree.floorKey("i"));
+        Assert.assertEquals("g", tree.lowerKey("h"));
+        Assert.assertNull(tree.lowerKey("a"));
+        Assert.assertEquals("m", tree.ceilingKey("i"));
+        Assert.assertEquals("m", tree.ceilingKey("m"));
+        Assert.assertEquals("q", tree.higherKey("m"));
+        Assert.assertNull(tree.higherKey("y"));
+        Assert.assertNull(tree.ceilingKey("z"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void floorNullKeyTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+        tree.floorKey(null);
+    }
+
+    @Test
+    public void subMapTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+        RedBlackTreeMap<String, Integer>.SubMap subMap = tree.subMap("c", "r");
+
+        Assert.assertEquals("cfghmq", keysOf(subMap));
+        Assert.assertEquals(6, subMap.getSize());
+        Assert.assertEquals("c", subMap.firstKey());
+        Assert.assertEquals("q", subMap.lastKey());
+        Assert.assertNull(subMap.get("r"));
+        Assert.assertEquals(Integer.valueOf(30), subMap.get("h"));
+        Assert.assertEquals("fghmqr", keysOf(tree.subMap("d", false, "r", true)));
+    }
+
+    @Test
+    public void headAndTailMapTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals("abcf", keysOf(tree.headMap("g")));
+        Assert.assertEquals("abcfg", keysOf(tree.headMap("g", true)));
+        Assert.assertEquals("twy", keysOf(tree.tailMap("s")));
+        Assert.assertEquals("wy", keysOf(tree.tailMap("t", false)));
+        Assert.assertTrue(tree.tailMap("z").isEmpty());
+    }
+
+    @Test
+    public void subMapIsBackedByTreeTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+        RedBlackTreeMap<String, Integer>.SubMap subMap = tree.subMap("c", "r");
+
+        subMap.put("d", 1);
+        tree.remove("g");
+        Iterator<RedBlackTreeMap.Node<String, Integer>> iterator = subMap.iterator();
+        while (iterator.hasNext()) {
+            if ("m".equals(iterator.next().getKey())) {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals("cdfhq", keysOf(subMap));
+        Assert.assertEquals("abcdfhqrtwy", tree.inorderTraversalString());
+        Assert.assertEquals(11, tree.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void subMapPutOutOfRangeTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+        tree.subMap("c", "r").put("r", 1);
+    }
+
+    @Test
+    public void selectAndRankTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals("a", tree.select(0));
+        Assert.assertEquals("h", tree.select(5));
+        Assert.assertEquals("y", tree.select(11));
+        Assert.assertEquals(5, tree.rank("h"));
+        Assert.assertEquals(6, tree.rank("i"));
+        Assert.assertEquals(12, tree.rank("z"));
+        Assert.assertEquals(0, tree.rank("0"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void selectOutOfRangeTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+        tree.select(12);
+    }
+
+    @Test
+    public void countRangeTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals(6, tree.countRange("c", "q"));
+        Assert.assertEquals(4, tree.countRange("d", "n"));
+        Assert.assertEquals(12, tree.countRange("0", "z"));
+        Assert.assertEquals(0, tree.countRange("q", "c"));
+        Assert.assertEquals(6, tree.subMap("c", "r").getSize());
+        Assert.assertEquals(5, tree.subMap("c", false, "r", false).getSize());
+    }
+
+    @Test
+    public void randomOperationsKeepTreeValidTest() {
+        Random random = new Random(21);
+        RedBlackTreeMap<Integer, Integer> tree = new RedBlackTreeMap<>();
+        TreeMap<Integer, Integer> reference = new TreeMap<>();
+
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(reference.remove(key), tree.remove(key));
+            } else {
+                reference.put(key, i);
+                tree.put(key, i);
+            }
+        }
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        Assert.assertEquals(reference.size(), tree.getSize());
+
+        List<Integer> keys = new ArrayList<>(reference.keySet());
+        for (int i = 0; i < keys.size(); i++) {
+            Assert.assertEquals(keys.get(i), tree.select(i));
+            Assert.assertEquals(i, tree.rank(keys.get(i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            int lo = random.nextInt(1000);
+            int hi = lo + random.nextInt(200);
+            Assert.assertEquals(reference.subMap(lo, true, hi, true).size(), tree.countRange(lo, hi));
+        }
+    }
+
+    @Test
+    public void aggregateTest() {
+        RedBlackTreeMap<String, Integer> sums = new RedBlackTreeMap<>(Monoid.of(0, Integer::sum));
+        RedBlackTreeMap<String, Integer> maxima = new RedBlackTreeMap<>(Monoid.of(Integer.MIN_VALUE, Math::max));
+        for (RedBlackTreeMap.Node<String, Integer> node : generateBigTree()) {
+            sums.put(node.getKey(), node.getValue());
+            maxima.put(node.getKey(), node.getValue());
+        }
+
+        // c=28 f=32 g=22 h=30 m=31 q=26
+        Assert.assertEquals(Integer.valueOf(169), sums.aggregate("c", "q"));
+        Assert.assertEquals(Integer.valueOf(32), maxima.aggregate("c", "q"));
+        Assert.assertEquals(Integer.valueOf(22), sums.aggregate("g", "g"));
+        Assert.assertEquals(Integer.valueOf(0), sums.aggregate("d", "e"));
+        Assert.assertEquals(Integer.valueOf(0), sums.aggregate("q", "c"));
+
+        sums.put("f", 2);
+        sums.remove("g");
+        Assert.assertEquals(Integer.valueOf(117), sums.aggregate("c", "q"));
+        Assert.assertTrue(sums.isValidRedBlackTree());
+    }
+
+    @Test
+    public void aggregateKeepsKeyOrderTest() {
+        RedBlackTreeMap<Integer, String> tree = new RedBlackTreeMap<>(Monoid.of("", String::concat));
+        for (int i = 9; i >= 0; i--) {
+            tree.put(i, String.valueOf(i));
+        }
+        tree.remove(5);
+
+        Assert.assertEquals("234678", tree.aggregate(2, 8));
+        Assert.assertEquals("012346789", tree.aggregate(-1, 10));
+        Assert.assertEquals("012346789", new RedBlackTreeMap<>(tree).aggregate(0, 9));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void aggregateWithoutMonoidTest() {
+        generateBigTree().aggregate("a", "z");
+    }
+
+    @Test
+    public void randomOperationsKeepAggregatesTest() {
+        Random random = new Random(40);
+        RedBlackTreeMap<Integer, Long> tree = new RedBlackTreeMap<>(Monoid.of(0L, Long::sum));
+        TreeMap<Integer, Long> reference = new TreeMap<>();
+
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(reference.remove(key), tree.remove(key));
+            } else {
+                reference.put(key, (long) i);
+                tree.put(key, (long) i);
+            }
+        }
+        Iterator<RedBlackTreeMap.Node<Integer, Long>> iterator = tree.iterator();
+        while (iterator.hasNext()) {
+            Integer key = iterator.next().getKey();
+            if (key % 7 == 0) {
+                iterator.remove();
+                reference.remove(key);
+            }
+        }
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        for (int i = 0; i < 100; i++) {
+            int lo = random.nextInt(1000);
+            int hi = lo + random.nextInt(200);
+            long expected = 0;
+            for (long value : reference.subMap(lo, true, hi, true).values()) {
+                expected += value;
+            }
+            Assert.assertEquals(Long.valueOf(expected), tree.aggregate(lo, hi));
+        }
+    }
+
+    @Test
+    public void splitTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        RedBlackTreeMap<String, Integer> greater = tree.split("h");
+        Assert.assertEquals("abcfg", keysOf(tree));
+        Assert.assertEquals("hmqrtwy", keysOf(greater));
+        Assert.assertEquals(5, tree.getSize());
+        Assert.assertEquals(7, greater.getSize());
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        Assert.assertTrue(greater.isValidRedBlackTree());
+
+        RedBlackTreeMap<String, Integer> empty = tree.split("z");
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertEquals("abcfg", keysOf(tree));
+    }
+
+    @Test
+    public void removeRangeTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals(5, tree.removeRange("c", "m"));
+        Assert.assertEquals("abqrtwy", keysOf(tree));
+        Assert.assertEquals(0, tree.removeRange("d", "p"));
+        Assert.assertEquals(1, tree.removeRange("x", "z"));
+        Assert.assertEquals("abqrtw", keysOf(tree));
+        Assert.assertEquals(6, tree.getSize());
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        tree.put("z", 1);
+        Assert.assertEquals("abqrtwz", keysOf(tree));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void removeRangeWrongBoundsTest() {
+        generateBigTree().removeRange("m", "c");
+    }
+
+    @Test
+    public void removeIfTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        StringBuilder tested = new StringBuilder();
+        int removed = tree.removeIf((key, value) -> {
+            tested.append(key);
+            return value % 2 == 0;
+        });
+        Assert.assertEquals("abcfghmqrtwy", tested.toString());
+        Assert.assertEquals(6, removed);
+        Assert.assertEquals("abmrtw", keysOf(tree));
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        Assert.assertEquals(6, tree.removeIf((key, value) -> true));
+        Assert.assertTrue(tree.isEmpty());
+    }
+
+    @Test
+    public void removeIfThrowingPredicateTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        try {
+            tree.removeIf((key, value) -> {
+                if (key.equals("r")) {
+                    throw new IllegalStateException();
+                }
+                return value % 2 == 0;
+            });
+            Assert.fail();
+        } catch (IllegalStateException ignored) {
+            // map must stay as it was
+        }
+        Assert.assertEquals("abcfghmqrtwy", keysOf(tree));
+        Assert.assertEquals(12, tree.getSize());
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        Assert.assertEquals(6, tree.removeIf((key, value) -> value % 2 == 0));
+        Assert.assertEquals("abmrtw", keysOf(tree));
+    }
+
+    @Test
+    public void randomRemoveRangeAndRemoveIfTest() {
+        Random random = new Random(46);
+        RedBlackTreeMap<Integer, Long> tree = new RedBlackTreeMap<>(Monoid.of(0L, Long::sum));
+        TreeMap<Integer, Long> reference = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(100000);
+            tree.put(key, (long) i);
+            reference.put(key, (long) i);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            int lo = random.nextInt(100000);
+            int hi = lo + random.nextInt(1000);
+            Map<Integer, Long> range = reference.subMap(lo, true, hi, true);
+            int expected = range.size();
+            range.clear();
+            Assert.assertEquals(expected, tree.removeRange(lo, hi));
+            // removed nodes do not stay cached
+            tree.put(hi, (long) i);
+            reference.put(hi, (long) i);
+        }
+        Assert.assertTrue(tree.isValidRedBlackTree());
+
+        int expected = reference.size();
+        reference.values().removeIf(value -> value % 3 == 0);
+        expected -= reference.size();
+        Assert.assertEquals(expected, tree.removeIf((key, value) -> value % 3 == 0));
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        Assert.assertEquals(reference.size(), tree.getSize());
+        Iterator<Map.Entry<Integer, Long>> entries = reference.entrySet().iterator();
+        for (RedBlackTreeMap.Node<Integer, Long> node : tree) {
+            Map.Entry<Integer, Long> entry = entries.next();
+            Assert.assertEquals(entry.getKey(), node.getKey());
+            Assert.assertEquals(entry.getValue(), node.getValue());
+        }
+        long sum = reference.values().stream().mapToLong(Long::longValue).sum();
+        Assert.assertEquals(Long.valueOf(sum), tree.aggregate(0, 200000));
+    }
+
+    @Test
+    public void unionIntersectionDifferenceTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+        RedBlackTreeMap<String, Integer> other = new RedBlackTreeMap<>();
+        other.put("b", 1);
+        other.put("d", 2);
+        other.put("z", 3);
+
+        tree.union(other);
+        Assert.assertEquals("abcdfghmqrtwyz", keysOf(tree));
+        Assert.assertEquals(Integer.valueOf(1), tree.get("b"));
+        Assert.assertTrue(other.isEmpty());
+        Assert.assertTrue(tree.isValidRedBlackTree());
+
+        other.put("a", 4);
+        other.put("d", 5);
+        other.put("e", 6);
+        RedBlackTreeMap<String, Integer> copy = new RedBlackTreeMap<>(tree);
+        RedBlackTreeMap<String, Integer> otherCopy = new RedBlackTreeMap<>(other);
+        tree.intersection(other);
+        Assert.assertEquals("ad", keysOf(tree));
+        Assert.assertEquals(Integer.valueOf(25), tree.get("a"));
+
+        copy.difference(otherCopy);
+        Assert.assertEquals("bcfghmqrtwyz", keysOf(copy));
+        Assert.assertTrue(copy.isValidRedBlackTree());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unionDifferentComparatorsTest() {
+        generateBigTree().union(new RedBlackTreeMap<>(Comparator.<String>reverseOrder()));
+    }
+
+    @Test
+    public void bulkOperationsWithDifferentMonoidsTest() {
+        RedBlackTreeMap<Integer, Long> sums = new RedBlackTreeMap<>(Monoid.of(0L, Long::sum));
+        RedBlackTreeMap<Integer, Long> plain = new RedBlackTreeMap<>();
+        RedBlackTreeMap<Integer, Long> maxima = new RedBlackTreeMap<>(Monoid.of(Long.MIN_VALUE, Math::max));
+        long expected = 0;
+        for (int i = 0; i < 100; i++) {
+            sums.put(i, 1L);
+            plain.put(1000 + i, 10L);
+            maxima.put(2000 + i, 100L);
+            expected += 111;
+        }
+
+        sums.union(plain);
+        Assert.assertTrue(sums.isValidRedBlackTree());
+        Assert.assertEquals(Long.valueOf(1100), sums.aggregate(0, 3000));
+        sums.union(maxima);
+        Assert.assertTrue(sums.isValidRedBlackTree());
+        Assert.assertEquals(Long.valueOf(expected), sums.aggregate(0, 3000));
+
+        RedBlackTreeMap<Integer, Long> other = new RedBlackTreeMap<>(Monoid.of(Long.MIN_VALUE, Math::max));
+        for (int i = 50; i < 1050; i++) {
+            other.put(i, 0L);
+        }
+        sums.difference(other);
+        Assert.assertTrue(sums.isValidRedBlackTree());
+        Assert.assertEquals(Long.valueOf(expected - 50 - 500), sums.aggregate(0, 3000));
+
+        RedBlackTreeMap<Integer, Long> unaugmented = new RedBlackTreeMap<>();
+        RedBlackTreeMap<Integer, Long> augmented = new RedBlackTreeMap<>(Monoid.of(0L, Long::sum));
+        for (int i = 0; i < 100; i++) {
+            augmented.put(i, 1L);
+        }
+        unaugmented.union(augmented);
+        Assert.assertTrue(unaugmented.isValidRedBlackTree());
+        Assert.assertEquals(100, unaugmented.getSize());
+    }
+
+    @Test
+    public void randomBulkOperationsTest() {
+        Random random = new Random(42);
+        for (int round = 0; round < 6; round++) {
+            // big enough to be split between threads
+            int firstSize = round < 3 ? 50000 : random.nextInt(100);
+            int secondSize = round % 3 == 0 ? 30000 : random.nextInt(2000);
+            TreeMap<Integer, Long> first = new TreeMap<>();
+            TreeMap<Integer, Long> second = new TreeMap<>();
+            for (int i = 0; i < firstSize; i++) {
+                first.put(random.nextInt(200000), (long) i);
+            }
+            for (int i = 0; i < secondSize; i++) {
+                second.put(random.nextInt(200000), (long) -i);
+            }
+
+            TreeMap<Integer, Long> union = new TreeMap<>(first);
+            union.putAll(second);
+            TreeMap<Integer, Long> intersection = new TreeMap<>(first);
+            intersection.keySet().retainAll(second.keySet());
+            TreeMap<Integer, Long> difference = new TreeMap<>(first);
+            difference.keySet().removeAll(second.keySet());
+
+            assertSameEntries(union, combined(first, second, 0));
+            assertSameEntries(intersection, combined(first, second, 1));
+            assertSameEntries(difference, combined(first, second, 2));
+
+            int key = random.nextInt(200000);
+            RedBlackTreeMap<Integer, Long> lower = augmentedCopy(first);
+            RedBlackTreeMap<Integer, Long> greater = lower.split(key);
+            assertSameEntries(first.headMap(key), lower);
+            assertSameEntries(first.tailMap(key), greater);
+        }
+    }
+
+    @Test
+    public void streamTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Assert.assertEquals("abcfghmqrtwy", tree.keyStream().collect(Collectors.joining()));
+        Assert.assertEquals(Integer.valueOf(318), tree.valueStream().reduce(0, Integer::sum));
+        Assert.assertEquals(Arrays.asList("g", "h"),
+            tree.stream().filter(entry -> entry.getValue() % 8 == 6).map(Map.Entry::getKey).collect(Collectors.toList()));
+        Assert.assertEquals(0, new RedBlackTreeMap<String, Integer>().stream().count());
+    }
+
+    @Test
+    public void spliteratorSplitTest() {
+        RedBlackTreeMap<String, Integer> tree = generateBigTree();
+
+        Spliterator<RedBlackTreeMap.Node<String, Integer>> suffix = tree.spliterator();
+        Assert.assertTrue(suffix.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED));
+        suffix.tryAdvance(node -> Assert.assertEquals("a", node.getKey()));
+        Spliterator<RedBlackTreeMap.Node<String, Integer>> prefix = suffix.trySplit();
+        Assert.assertEquals(5, prefix.estimateSize());
+        Assert.assertEquals(6, suffix.estimateSize());
+
+        StringBuilder sb = new StringBuilder();
+        prefix.forEachRemaining(node -> sb.append(node.getKey()));
+        sb.append('|');
+        suffix.forEachRemaining(node -> sb.append(node.getKey()));
+        Assert.assertEquals("bcfgh|mqrtwy", sb.toString());
+    }
+
+    @Test
+    public void parallelStreamTest() {
+        RedBlackTreeMap<Integer, Long> tree = new RedBlackTreeMap<>();
+        long expected = 0;
+        for (int i = 0; i < 100000; i++) {
+            tree.put(i * 3, (long) i);
+            expected += i;
+        }
+
+        Assert.assertEquals(expected, tree.parallelStream().mapToLong(Map.Entry::getValue).sum());
+        Assert.assertEquals(expected, tree.valueStream().parallel().mapToLong(Long::longValue).sum());
+        List<Integer> keys = tree.keyStream().parallel().filter(key -> key % 2 == 0).collect(Collectors.toList());
+        Assert.assertEquals(50000, keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Assert.assertEquals(Integer.valueOf(i * 6), keys.get(i));
+        }
+    }
+
+    @Test
+    public void putAfterTest() {
+        RedBlackTreeMap<Integer, String> tree = new RedBlackTreeMap<>();
+        RedBlackTreeMap.Node<Integer, String> cursor = tree.putAfter(putFirst(tree), 10, "10");
+        for (int i = 20; i <= 1000; i += 10) {
+            cursor = tree.putAfter(cursor, i, String.valueOf(i));
+            Assert.assertEquals(Integer.valueOf(i), cursor.getKey());
+        }
+        // keys before the cursor and existing keys work too
+        cursor = tree.putAfter(cursor, 5, "5");
+        cursor = tree.putAfter(cursor, 500, "five hundred");
+        Assert.assertEquals("five hundred", cursor.getValue());
+        Assert.assertEquals(102, tree.getSize());
+        Assert.assertEquals(Integer.valueOf(0), tree.firstKey());
+        Assert.assertTrue(tree.isValidRedBlackTree());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putAfterRemovedCursorTest() {
+        RedBlackTreeMap<Integer, String> tree = new RedBlackTreeMap<>();
+        RedBlackTreeMap.Node<Integer, String> cursor = putFirst(tree);
+        tree.put(1, "1");
+        tree.remove(0);
+        tree.putAfter(cursor, 2, "2");
+    }
+
+    @Test
+    public void fingerSearchRandomTest() {
+        Random random = new Random(44);
+        RedBlackTreeMap<Integer, Integer> tree = new RedBlackTreeMap<>(Monoid.of(0, Integer::sum));
+        TreeMap<Integer, Integer> reference = new TreeMap<>();
+        int key = 0;
+
+        for (int i = 0; i < 20000; i++) {
+            // mostly ascending with some jumps back, lookups and removals
+            key = random.nextInt(10) == 0 ? random.nextInt(key + 1) : key + random.nextInt(3);
+            int operation = random.nextInt(6);
+            if (operation == 0) {
+                Assert.assertEquals(reference.remove(key), tree.remove(key));
+            } else if (operation == 1) {
+                Assert.assertEquals(reference.get(key), tree.get(key));
+            } else {
+                reference.put(key, i);
+                tree.put(key, i);
+            }
+        }
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        Assert.assertEquals(reference.size(), tree.getSize());
+        for (Map.Entry<Integer, Integer> entry : reference.entrySet()) {
+            Assert.assertEquals(entry.getValue(), tree.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void concurrentGetTest() {
+        RedBlackTreeMap<Integer, Integer> tree = new RedBlackTreeMap<>();
+        for (int i = 0; i < 100000; i++) {
+            tree.put(i, -i);
+        }
+
+        // lookups from many threads at once must not change the map
+        long found = IntStream.range(0, 400000).parallel()
+            .filter(i -> tree.containsKey(i % 200000) && tree.get(i % 200000) == -(i % 200000))
+            .count();
+        Assert.assertEquals(200000, found);
+        Assert.assertTrue(tree.isValidRedBlackTree());
+    }
+
+    private RedBlackTreeMap.Node<Integer, String> putFirst(RedBlackTreeMap<Integer, String> tree) {
+        tree.put(0, "0");
+        return tree.iterator().next();
+    }
+
+    private RedBlackTreeMap<Integer, Long> combined(TreeMap<Integer, Long> first, TreeMap<Integer, Long> second,
+                                                    int operation) {
+        RedBlackTreeMap<Integer, Long> tree = augmentedCopy(first);
+        RedBlackTreeMap<Integer, Long> other = augmentedCopy(second);
+        if (operation == 0) {
+            tree.union(other);
+        } else if (operation == 1) {
+            tree.intersection(other);
+        } else {
+            tree.difference(other);
+        }
+        Assert.assertTrue(other.isEmpty());
+        return tree;
+    }
+
+    private RedBlackTreeMap<Integer, Long> augmentedCopy(TreeMap<Integer, Long> source) {
+        // element by element, so that the trees are not perfectly balanced
+        RedBlackTreeMap<Integer, Long> tree = new RedBlackTreeMap<>(Monoid.of(0L, Long::sum));
+        for (Map.Entry<Integer, Long> entry : source.entrySet()) {
+            tree.put(entry.getKey(), entry.getValue());
+        }
+        return tree;
+    }
+
+    private void assertSameEntries(Map<Integer, Long> expected, RedBlackTreeMap<Integer, Long> tree) {
+        Assert.assertTrue(tree.isValidRedBlackTree());
+        Assert.assertEquals(expected.size(), tree.getSize());
+        Iterator<Map.Entry<Integer, Long>> iterator = expected.entrySet().iterator();
+        for (RedBlackTreeMap.Node<Integer, Long> node : tree) {
+            Assert.assertEquals(iterator.next(), node);
+        }
+    }
+
+    private String keysOf(Iterable<RedBlackTreeMap.Node<String, Integer>> nodes) {
+        StringBuilder sb = new StringBuilder();
+        for (RedBlackTreeMap.Node<String, Integer> node : nodes) {
+            sb.append(node.getKey());
+        }
+        return sb.toString();
+    }
+
     /**
      * Generated tree:
      *             --------------g---------------
@@ -0,0 +1,114 @@
+package ilya.mp.map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares point lookups and full scans of BPlusTreeMap and RedBlackTreeMap,
+ * and lookups of boxed keys with primitive keys of LongTreeMap.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=ilya.mp.map.SortedMapBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedMapBenchmark {
+    private static final int LOOKUPS = 10000;
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private Integer[] lookups;
+    private long[] longLookups;
+    private BPlusTreeMap<Integer, Integer> bPlusTree;
+    private RedBlackTreeMap<Integer, Integer> redBlackTree;
+    private LongTreeMap<Integer> longTree;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        bPlusTree = new BPlusTreeMap<>();
+        redBlackTree = new RedBlackTreeMap<>();
+        longTree = new LongTreeMap<>();
+        for (int i = 0; i < size; i++) {
+            Integer key = random.nextInt();
+            bPlusTree.put(key, i);
+            redBlackTree.put(key, i);
+            longTree.put(key, i);
+        }
+        lookups = new Integer[LOOKUPS];
+        longLookups = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = random.nextInt();
+            longLookups[i] = lookups[i];
+        }
+    }
+
+    @Benchmark
+    public void bPlusTreeGet(Blackhole blackhole) {
+        for (Integer key : lookups) {
+            blackhole.consume(bPlusTree.get(key));
+        }
+    }
+
+    @Benchmark
+    public void redBlackTreeGet(Blackhole blackhole) {
+        for (Integer key : lookups) {
+            blackhole.consume(redBlackTree.get(key));
+        }
+    }
+
+    @Benchmark
+    public void longTreeGet(Blackhole blackhole) {
+        for (long key : longLookups) {
+            blackhole.consume(longTree.get(key));
+        }
+    }
+
+    @Benchmark
+    public void bPlusTreeScan(Blackhole blackhole) {
+        for (Map.Entry<Integer, Integer> entry : bPlusTree) {
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public void redBlackTreeScan(Blackhole blackhole) {
+        for (Map.Entry<Integer, Integer> entry : redBlackTree) {
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public void longTreeScan(Blackhole blackhole) {
+        LongTreeMap<Integer>.Cursor cursor = longTree.cursor();
+        while (cursor.next()) {
+            blackhole.consume(cursor.value());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SortedMapBenchmark.class.getSimpleName()).build()).run();
+    }
+}
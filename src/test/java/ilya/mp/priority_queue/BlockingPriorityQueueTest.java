@@ -0,0 +1,85 @@
+package ilya.mp.priority_queue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BlockingPriorityQueueTest {
+
+    @Test
+    public void takeTest() throws InterruptedException {
+        BlockingPriorityQueue<Integer> queue = new BlockingPriorityQueue<>();
+        queue.put(2);
+        queue.put(8);
+        queue.put(5);
+
+        assertEquals(Integer.valueOf(8), queue.take());
+        assertEquals(Integer.valueOf(5), queue.take());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void pollTimeoutTest() throws InterruptedException {
+        BlockingPriorityQueue<Integer> queue = new BlockingPriorityQueue<>();
+
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+        assertNull(queue.poll());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putNullTest() {
+        BlockingPriorityQueue<Integer> queue = new BlockingPriorityQueue<>();
+        queue.put(null);
+    }
+
+    @Test
+    public void drainToTest() {
+        BlockingPriorityQueue<Integer> queue = new BlockingPriorityQueue<>();
+        queue.put(2);
+        queue.put(8);
+        queue.put(12);
+        queue.put(3);
+        List<Integer> drained = new ArrayList<>();
+
+        assertEquals(3, queue.drainTo(drained, 3));
+        assertEquals(List.of(12, 8, 3), drained);
+        assertEquals(1, queue.drainTo(drained));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void takeBlocksUntilPutTest() throws InterruptedException {
+        BlockingPriorityQueue<Integer> queue = new BlockingPriorityQueue<>();
+        ConcurrentLinkedQueue<Integer> taken = new ConcurrentLinkedQueue<>();
+        List<Thread> consumers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread consumer = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 250; j++) {
+                        taken.add(queue.take());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            consumer.start();
+            consumers.add(consumer);
+        }
+        for (int i = 0; i < 1000; i++) {
+            queue.put(i);
+        }
+        for (Thread consumer : consumers) {
+            consumer.join(10000);
+        }
+
+        assertEquals(1000, taken.size());
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,246 @@
+package ilya.mp.priority_queue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExternalPriorityQueueTest {
+
+    private static final ElementSerializer<Integer> INT_SERIALIZER = new ElementSerializer<>() {
+        @Override
+        public void write(Integer element, DataOutput out) throws IOException {
+            out.writeInt(element);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void popMaxInMemoryTest() {
+        try (ExternalPriorityQueue<Integer> queue = newQueue(10)) {
+            queue.insert(2);
+            queue.insert(8);
+            queue.insert(5);
+
+            assertEquals(Integer.valueOf(8), queue.getMax());
+            assertEquals(Integer.valueOf(8), queue.popMax());
+            assertEquals(2, queue.size());
+        }
+    }
+
+    @Test
+    public void popMaxWithSpilledRunsTest() {
+        Random random = new Random(3);
+        List<Integer> expected = new ArrayList<>();
+
+        try (ExternalPriorityQueue<Integer> queue = newQueue(16)) {
+            for (int i = 0; i < 1000; i++) {
+                int element = random.nextInt(10000);
+                expected.add(element);
+                queue.insert(element);
+            }
+            assertTrue(folder.getRoot().list().length > 0);
+
+            expected.sort(Collections.reverseOrder());
+            List<Integer> actual = new ArrayList<>();
+            while (!queue.isEmpty()) {
+                Integer max = queue.getMax();
+                assertEquals(max, queue.popMax());
+                actual.add(max);
+            }
+            assertEquals(expected, actual);
+        }
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void interleavedInsertAndPopTest() {
+        Random random = new Random(5);
+        PriorityQueue<Integer> reference = new PriorityQueue<>();
+
+        try (ExternalPriorityQueue<Integer> queue = newQueue(8)) {
+            for (int i = 0; i < 2000; i++) {
+                if (reference.isEmpty() || random.nextInt(3) > 0) {
+                    int element = random.nextInt(500);
+                    reference.insert(element);
+                    queue.insert(element);
+                } else {
+                    assertEquals(reference.popMax(), queue.popMax());
+                }
+                assertEquals(reference.size(), queue.size());
+            }
+        }
+    }
+
+    @Test
+    public void closeDeletesRunsTest() {
+        ExternalPriorityQueue<Integer> queue = newQueue(2);
+        for (int i = 0; i < 10; i++) {
+            queue.insert(i);
+        }
+        queue.close();
+
+        assertTrue(queue.isEmpty());
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void manySpillsAreMergedTest() {
+        Random random = new Random(28);
+        PriorityQueue<Integer> reference = new PriorityQueue<>();
+
+        try (ExternalPriorityQueue<Integer> queue =
+                 new ExternalPriorityQueue<>(2, INT_SERIALIZER, folder.getRoot().toPath(), 4)) {
+            for (int i = 0; i < 5000; i++) {
+                if (random.nextInt(5) > 0) {
+                    int element = random.nextInt(100000);
+                    reference.insert(element);
+                    queue.insert(element);
+                } else if (!reference.isEmpty()) {
+                    assertEquals(reference.popMax(), queue.popMax());
+                }
+                assertTrue(folder.getRoot().list().length <= 4);
+            }
+            while (!reference.isEmpty()) {
+                assertEquals(reference.popMax(), queue.popMax());
+            }
+            assertTrue(queue.isEmpty());
+        }
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void defaultRunLimitTest() {
+        try (ExternalPriorityQueue<Integer> queue = newQueue(1)) {
+            for (int i = 0; i < 1000; i++) {
+                queue.insert(i * 7919 % 1000);
+                assertTrue(folder.getRoot().list().length <= 64);
+            }
+            for (int i = 999; i >= 0; i--) {
+                assertEquals(Integer.valueOf(i), queue.popMax());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooFewRunsTest() {
+        new ExternalPriorityQueue<>(2, INT_SERIALIZER, folder.getRoot().toPath(), 1);
+    }
+
+    @Test
+    public void failedSpillKeepsElementsTest() {
+        boolean[] failing = {false};
+        ElementSerializer<Integer> serializer = new ElementSerializer<>() {
+            @Override
+            public void write(Integer element, DataOutput out) throws IOException {
+                if (failing[0] && element == 3) {
+                    throw new IOException("Disk is full");
+                }
+                out.writeInt(element);
+            }
+
+            @Override
+            public Integer read(DataInput in) throws IOException {
+                return in.readInt();
+            }
+        };
+
+        try (ExternalPriorityQueue<Integer> queue = new ExternalPriorityQueue<>(4, serializer, folder.getRoot().toPath())) {
+            for (int i = 1; i <= 4; i++) {
+                queue.insert(i);
+            }
+            failing[0] = true;
+            try {
+                queue.insert(5);
+                fail("Spill must fail");
+            } catch (UncheckedIOException expected) {
+                // the heap stays in memory
+            }
+            assertEquals(0, folder.getRoot().list().length);
+            assertEquals(4, queue.size());
+            failing[0] = false;
+            queue.insert(5);
+            for (int i = 5; i >= 1; i--) {
+                assertEquals(Integer.valueOf(i), queue.popMax());
+            }
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void failedReadKeepsElementsTest() {
+        boolean[] failing = {false};
+        ElementSerializer<Integer> serializer = new ElementSerializer<>() {
+            @Override
+            public void write(Integer element, DataOutput out) throws IOException {
+                out.writeInt(element);
+            }
+
+            @Override
+            public Integer read(DataInput in) throws IOException {
+                int high = in.readShort();
+                if (failing[0]) {
+                    throw new IOException("Bad sector");
+                }
+                return (high << 16) | in.readUnsignedShort();
+            }
+        };
+
+        try (ExternalPriorityQueue<Integer> queue = new ExternalPriorityQueue<>(4, serializer, folder.getRoot().toPath())) {
+            for (int i = 1; i <= 10; i++) {
+                queue.insert(i);
+            }
+            // runs [4, 3, 2, 1] and [8, 7, 6, 5] on disk, 9 and 10 in memory
+            assertEquals(Integer.valueOf(10), queue.popMax());
+            assertEquals(Integer.valueOf(9), queue.popMax());
+            failing[0] = true;
+            try {
+                queue.popMax();
+                fail("Read must fail");
+            } catch (UncheckedIOException expected) {
+                // nothing is lost
+            }
+            assertEquals(8, queue.size());
+            assertEquals(Integer.valueOf(8), queue.getMax());
+            failing[0] = false;
+            for (int i = 8; i >= 1; i--) {
+                assertEquals(Integer.valueOf(i), queue.popMax());
+            }
+            assertTrue(queue.isEmpty());
+            assertEquals(0, folder.getRoot().list().length);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void popMaxWithEmptyQueueTest() {
+        newQueue(2).popMax();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void insertNullTest() {
+        newQueue(2).insert(null);
+    }
+
+    private ExternalPriorityQueue<Integer> newQueue(int memoryLimit) {
+        return new ExternalPriorityQueue<>(memoryLimit, INT_SERIALIZER, folder.getRoot().toPath());
+    }
+}
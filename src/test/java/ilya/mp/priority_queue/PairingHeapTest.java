@@ -0,0 +1,182 @@
+package ilya.mp.priority_queue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PairingHeapTest {
+
+    @Test
+    public void popMaxTest() {
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        heap.insert(2);
+        heap.insert(8);
+        heap.insert(12);
+        heap.insert(3);
+        heap.insert(5);
+
+        assertEquals(Integer.valueOf(12), heap.popMax());
+        assertEquals(Integer.valueOf(8), heap.popMax());
+        assertEquals(Integer.valueOf(5), heap.getMax());
+        assertEquals(3, heap.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void insertNullTest() {
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        heap.insert(null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void popMaxWithEmptyHeapTest() {
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        heap.popMax();
+    }
+
+    @Test
+    public void meldTest() {
+        PairingHeap<Integer> first = new PairingHeap<>();
+        PairingHeap<Integer> second = new PairingHeap<>();
+        first.insert(1);
+        first.insert(7);
+        second.insert(4);
+        PairingHeap.Handle<Integer> handle = second.insert(9);
+
+        first.meld(second);
+        assertEquals(4, first.size());
+        assertTrue(second.isEmpty());
+
+        first.decreaseKey(handle, 0);
+        assertEquals(Integer.valueOf(7), first.popMax());
+        assertEquals(Integer.valueOf(4), first.popMax());
+        assertEquals(Integer.valueOf(1), first.popMax());
+        assertEquals(Integer.valueOf(0), first.popMax());
+    }
+
+    @Test
+    public void increaseKeyTest() {
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        heap.insert(10);
+        heap.insert(6);
+        PairingHeap.Handle<Integer> handle = heap.insert(3);
+
+        heap.increaseKey(handle, 11);
+        assertEquals(Integer.valueOf(11), heap.getMax());
+        assertEquals(Integer.valueOf(11), handle.getValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void increaseKeyWithLessElementTest() {
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        PairingHeap.Handle<Integer> handle = heap.insert(3);
+        heap.increaseKey(handle, 2);
+    }
+
+    @Test
+    public void removeTest() {
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        heap.insert(10);
+        PairingHeap.Handle<Integer> handle = heap.insert(6);
+        heap.insert(3);
+        heap.popMax();
+
+        assertEquals(Integer.valueOf(6), heap.remove(handle));
+        assertEquals(1, heap.size());
+        assertEquals(Integer.valueOf(3), heap.popMax());
+    }
+
+    @Test
+    public void foreignHandleTest() {
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        PairingHeap<Integer> other = new PairingHeap<>();
+        heap.insert(5);
+        other.insert(9);
+        PairingHeap.Handle<Integer> foreign = other.insert(4);
+
+        try {
+            heap.remove(foreign);
+            fail("Handle of another heap must be rejected");
+        } catch (IllegalArgumentException expected) {
+            // both heaps are untouched
+        }
+        try {
+            heap.increaseKey(foreign, 7);
+            fail("Handle of another heap must be rejected");
+        } catch (IllegalArgumentException expected) {
+            // both heaps are untouched
+        }
+        assertEquals(1, heap.size());
+        assertEquals(2, other.size());
+
+        // after meld the handle belongs to the receiving heap, also through several melds
+        PairingHeap<Integer> third = new PairingHeap<>();
+        third.meld(other);
+        heap.meld(third);
+        heap.increaseKey(foreign, 10);
+        assertEquals(Integer.valueOf(10), heap.popMax());
+        assertEquals(Integer.valueOf(9), heap.popMax());
+        assertEquals(Integer.valueOf(5), heap.popMax());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void handleOfMeldedHeapTest() {
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        PairingHeap<Integer> other = new PairingHeap<>();
+        heap.insert(5);
+        PairingHeap.Handle<Integer> handle = other.insert(2);
+        other.insert(3);
+        heap.meld(other);
+
+        other.remove(handle);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void removePoppedHandleTest() {
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        PairingHeap.Handle<Integer> handle = heap.insert(3);
+        heap.insert(1);
+        heap.popMax();
+        heap.remove(handle);
+    }
+
+    @Test
+    public void randomOperationsTest() {
+        Random random = new Random(42);
+        PairingHeap<Integer> heap = new PairingHeap<>();
+        List<PairingHeap.Handle<Integer>> handles = new ArrayList<>();
+        List<Integer> expected = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            handles.add(heap.insert(random.nextInt(1000)));
+        }
+        for (int i = 0; i < 500; i++) {
+            PairingHeap.Handle<Integer> handle = handles.get(random.nextInt(handles.size()));
+            if (i % 2 == 0) {
+                heap.increaseKey(handle, handle.getValue() + random.nextInt(100));
+            } else {
+                heap.decreaseKey(handle, handle.getValue() - random.nextInt(100));
+            }
+        }
+        for (int i = 0; i < 300; i++) {
+            heap.remove(handles.remove(random.nextInt(handles.size())));
+        }
+        for (PairingHeap.Handle<Integer> handle : handles) {
+            expected.add(handle.getValue());
+        }
+        expected.sort(Collections.reverseOrder());
+
+        List<Integer> actual = new ArrayList<>();
+        while (!heap.isEmpty()) {
+            actual.add(heap.popMax());
+        }
+        assertEquals(expected, actual);
+    }
+}
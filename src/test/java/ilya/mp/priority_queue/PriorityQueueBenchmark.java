@@ -0,0 +1,136 @@
+package ilya.mp.priority_queue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares popMax of PriorityQueue (bottom-up sift with hole moves) with
+ * the previous top-down sift with swaps over ArrayList.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=ilya.mp.priority_queue.PriorityQueueBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriorityQueueBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private Integer[] elements;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        elements = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = random.nextInt();
+        }
+    }
+
+    @Benchmark
+    public void bottomUpPopAll(Blackhole blackhole) {
+        PriorityQueue<Integer> queue = new PriorityQueue<>();
+        for (Integer element : elements) {
+            queue.insert(element);
+        }
+        while (!queue.isEmpty()) {
+            blackhole.consume(queue.popMax());
+        }
+    }
+
+    @Benchmark
+    public void topDownPopAll(Blackhole blackhole) {
+        TopDownPriorityQueue<Integer> queue = new TopDownPriorityQueue<>();
+        for (Integer element : elements) {
+            queue.insert(element);
+        }
+        while (!queue.isEmpty()) {
+            blackhole.consume(queue.popMax());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PriorityQueueBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Previous version of PriorityQueue: two comparisons per level and swaps through ArrayList.
+     */
+    private static final class TopDownPriorityQueue<T extends Comparable<T>> {
+        private final List<T> heap = new ArrayList<>();
+
+        void insert(T element) {
+            heap.add(element);
+            int i = heap.size() - 1;
+            while (i >= 1) {
+                int parent = (i - 1) / 2;
+                if (heap.get(i).compareTo(heap.get(parent)) > 0) {
+                    swap(i, parent);
+                    i = parent;
+                } else {
+                    break;
+                }
+            }
+        }
+
+        T popMax() {
+            if (heap.size() == 1) {
+                return heap.remove(0);
+            }
+            T max = heap.get(0);
+            T last = heap.remove(heap.size() - 1);
+            heap.set(0, last);
+            int i = 0;
+            int greatest = i;
+            while (i < heap.size()) {
+                int lChild = 2 * i + 1;
+                int rChild = 2 * i + 2;
+                if (lChild < heap.size() && heap.get(lChild).compareTo(heap.get(i)) > 0) {
+                    greatest = lChild;
+                }
+                if (rChild < heap.size() && heap.get(rChild).compareTo(heap.get(greatest)) > 0) {
+                    greatest = rChild;
+                }
+                if (greatest == i) {
+                    break;
+                }
+                swap(i, greatest);
+                i = greatest;
+            }
+            return max;
+        }
+
+        boolean isEmpty() {
+            return heap.isEmpty();
+        }
+
+        private void swap(int i, int j) {
+            T tmp = heap.get(i);
+            heap.set(i, heap.get(j));
+            heap.set(j, tmp);
+        }
+    }
+}
@@ -2,6 +2,11 @@ package ilya.mp.priority_queue;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -91,5 +96,70 @@ public class PriorityQueueTest {
         assertEquals(1, queue.size());
     }
 
+    @Test
+    public void removeByHandleTest() {
+        PriorityQueue<Integer> queue = new PriorityQueue<>();
+        queue.insert(2);
+        PriorityQueue.Handle<Integer> handle = queue.insert(8);
+        queue.insert(12);
+        queue.insert(3);
+
+        assertEquals(Integer.valueOf(8), queue.remove(handle));
+        assertFalse(queue.contains(handle));
+        assertEquals(Integer.valueOf(12), queue.popMax());
+        assertEquals(Integer.valueOf(3), queue.popMax());
+        assertEquals(Integer.valueOf(2), queue.popMax());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void removePoppedHandleTest() {
+        PriorityQueue<Integer> queue = new PriorityQueue<>();
+        PriorityQueue.Handle<Integer> handle = queue.insert(8);
+        queue.popMax();
+        queue.remove(handle);
+    }
+
+    @Test
+    public void updatePriorityTest() {
+        PriorityQueue<Integer> queue = new PriorityQueue<>();
+        PriorityQueue.Handle<Integer> low = queue.insert(2);
+        PriorityQueue.Handle<Integer> high = queue.insert(12);
+        queue.insert(8);
+
+        queue.updatePriority(low, 20);
+        assertEquals(Integer.valueOf(20), queue.getMax());
+        queue.updatePriority(high, 1);
+        assertEquals(Integer.valueOf(20), queue.popMax());
+        assertEquals(Integer.valueOf(8), queue.popMax());
+        assertEquals(Integer.valueOf(1), queue.popMax());
+    }
 
+    @Test
+    public void randomHandleOperationsTest() {
+        Random random = new Random(17);
+        PriorityQueue<Integer> queue = new PriorityQueue<>();
+        List<PriorityQueue.Handle<Integer>> handles = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            handles.add(queue.insert(random.nextInt(1000)));
+        }
+        for (int i = 0; i < 400; i++) {
+            PriorityQueue.Handle<Integer> handle = handles.get(random.nextInt(handles.size()));
+            queue.updatePriority(handle, random.nextInt(1000));
+        }
+        for (int i = 0; i < 400; i++) {
+            queue.remove(handles.remove(random.nextInt(handles.size())));
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (PriorityQueue.Handle<Integer> handle : handles) {
+            expected.add(handle.getValue());
+        }
+        expected.sort(Collections.reverseOrder());
+
+        List<Integer> actual = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            actual.add(queue.popMax());
+        }
+        assertEquals(expected, actual);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package ilya.mp.priority_queue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RadixHeapTest {
+
+    @Test
+    public void popMinTest() {
+        RadixHeap heap = new RadixHeap();
+        heap.insert(12, 1);
+        heap.insert(3, 2);
+        heap.insert(8, 3);
+        heap.insert(5, 4);
+
+        assertEquals(3, heap.getMinKey());
+        assertEquals(2, heap.popMin());
+        assertEquals(4, heap.popMin());
+        assertEquals(8, heap.getMinKey());
+        assertEquals(2, heap.size());
+    }
+
+    @Test
+    public void insertAfterPopTest() {
+        RadixHeap heap = new RadixHeap();
+        heap.insert(10, 1);
+        heap.insert(20, 2);
+        heap.popMin();
+        heap.insert(10, 3);
+        heap.insert(15, 4);
+
+        assertEquals(3, heap.popMin());
+        assertEquals(4, heap.popMin());
+        assertEquals(2, heap.popMin());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void negativeKeysTest() {
+        RadixHeap heap = new RadixHeap();
+        heap.insert(5, 1);
+        heap.insert(-7, 2);
+        heap.insert(Long.MAX_VALUE, 3);
+        heap.insert(Long.MIN_VALUE, 4);
+
+        assertEquals(4, heap.popMin());
+        assertEquals(2, heap.popMin());
+        assertEquals(1, heap.popMin());
+        assertEquals(3, heap.popMin());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void popMinWithEmptyHeapTest() {
+        RadixHeap heap = new RadixHeap();
+        heap.popMin();
+    }
+
+    @Test(expected = AssertionError.class)
+    public void nonMonotoneInsertTest() {
+        RadixHeap heap = new RadixHeap();
+        heap.insert(10, 1);
+        heap.popMin();
+        heap.insert(9, 2);
+    }
+
+    @Test
+    public void monotoneRandomTest() {
+        Random random = new Random(7);
+        RadixHeap heap = new RadixHeap();
+        long lastPopped = 0;
+
+        for (int i = 0; i < 10000; i++) {
+            if (heap.isEmpty() || random.nextInt(3) > 0) {
+                long key = lastPopped + random.nextInt(1 << 20);
+                heap.insert(key, (int) key);
+            } else {
+                long key = heap.getMinKey();
+                assertEquals((int) key, heap.popMin());
+                assertTrue(key >= lastPopped);
+                lastPopped = key;
+            }
+        }
+    }
+}
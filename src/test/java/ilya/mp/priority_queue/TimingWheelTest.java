@@ -0,0 +1,99 @@
+package ilya.mp.priority_queue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+
+    @Test
+    public void expireInOrderTest() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 2);
+        wheel.schedule("c", 300);
+        wheel.schedule("a", 15);
+        wheel.schedule("b", 95);
+
+        assertEquals(List.of(), wheel.advanceTo(10));
+        assertEquals(List.of("a"), wheel.advanceTo(20));
+        assertEquals(List.of("b"), wheel.advanceTo(299));
+        assertEquals(List.of("c"), wheel.advanceTo(300));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void farTimeoutTest() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 4, 2);
+        wheel.schedule("far", 1000);
+        wheel.schedule("near", 3);
+
+        assertEquals(List.of("near"), wheel.advanceTo(999));
+        assertEquals(List.of("far"), wheel.advanceTo(1_000_000));
+    }
+
+    @Test
+    public void cancelTest() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 4, 2);
+        TimingWheel.Timeout<String> near = wheel.schedule("near", 3);
+        TimingWheel.Timeout<String> far = wheel.schedule("far", 100);
+        wheel.schedule("kept", 50);
+
+        assertTrue(near.cancel());
+        assertTrue(far.cancel());
+        assertFalse(far.cancel());
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("kept"), wheel.advanceTo(200));
+        assertTrue(near.isCancelled());
+    }
+
+    @Test
+    public void pastDeadlineTest() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 2);
+        wheel.advanceTo(100);
+        TimingWheel.Timeout<String> timeout = wheel.schedule("past", 50);
+
+        assertEquals(List.of("past"), wheel.advanceTo(100));
+        assertTrue(timeout.isExpired());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongWheelSizeTest() {
+        new TimingWheel<String>(1, 6, 2);
+    }
+
+    @Test
+    public void randomScheduleTest() {
+        Random random = new Random(11);
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 16, 3);
+        List<TimingWheel.Timeout<Long>> pending = new ArrayList<>();
+        long now = 0;
+
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 50; i++) {
+                long deadline = now + random.nextInt(random.nextBoolean() ? 100 : 20000);
+                pending.add(wheel.schedule(deadline, deadline));
+            }
+            for (int i = 0; i < 20; i++) {
+                pending.remove(random.nextInt(pending.size())).cancel();
+            }
+            now += random.nextInt(300);
+            List<Long> expired = wheel.advanceTo(now);
+            long previous = Long.MIN_VALUE;
+            for (long deadline : expired) {
+                assertTrue(deadline <= now);
+                assertTrue(deadline >= previous);
+                previous = deadline;
+            }
+            pending.removeIf(TimingWheel.Timeout::isExpired);
+            for (TimingWheel.Timeout<Long> timeout : pending) {
+                assertTrue(timeout.getDeadline() > now);
+            }
+            assertEquals(pending.size(), wheel.size());
+        }
+    }
+}
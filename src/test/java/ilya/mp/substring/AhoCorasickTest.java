@@ -0,0 +1,99 @@
+package ilya.mp.substring;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class AhoCorasickTest {
+
+    @Test
+    public void classicExampleTest() {
+        AhoCorasick automaton = AhoCorasick.compile(
+            "he".toCharArray(), "she".toCharArray(), "his".toCharArray(), "hers".toCharArray());
+
+        List<AhoCorasick.Match> expected = List.of(
+            new AhoCorasick.Match(1, 1), new AhoCorasick.Match(0, 2), new AhoCorasick.Match(3, 2));
+        Assert.assertEquals(expected, automaton.search("ushers".toCharArray()));
+        Assert.assertEquals(4, automaton.getPatternCount());
+    }
+
+    @Test
+    public void overlappingAndDuplicatePatternsTest() {
+        AhoCorasick automaton = AhoCorasick.compile("aa".toCharArray(), "a".toCharArray(), "aa".toCharArray());
+
+        List<AhoCorasick.Match> expected = List.of(
+            new AhoCorasick.Match(1, 0),
+            new AhoCorasick.Match(0, 0), new AhoCorasick.Match(2, 0), new AhoCorasick.Match(1, 1),
+            new AhoCorasick.Match(0, 1), new AhoCorasick.Match(2, 1), new AhoCorasick.Match(1, 2));
+        Assert.assertEquals(expected, automaton.search("aaa".toCharArray()));
+    }
+
+    @Test
+    public void listenerTest() {
+        AhoCorasick automaton = AhoCorasick.compile("TEST".toCharArray(), "EXT".toCharArray());
+
+        StringBuilder sb = new StringBuilder();
+        automaton.search("THIS IS A TEST TEXT".toCharArray(),
+            (patternId, offset) -> sb.append(patternId).append('@').append(offset).append(' '));
+        Assert.assertEquals("0@10 1@16 ", sb.toString());
+        Assert.assertTrue(automaton.search("".toCharArray()).isEmpty());
+    }
+
+    @Test
+    public void charactersOutsideDenseRowsTest() {
+        AhoCorasick automaton = AhoCorasick.compile("\u0436\u0436".toCharArray(), "\u0436a".toCharArray());
+
+        List<AhoCorasick.Match> expected = List.of(new AhoCorasick.Match(0, 1), new AhoCorasick.Match(1, 2));
+        Assert.assertEquals(expected, automaton.search("x\u0436\u0436a".toCharArray()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyPatternTest() {
+        AhoCorasick.compile("a".toCharArray(), new char[0]);
+    }
+
+    @Test
+    public void randomPatternsTest() {
+        Random random = new Random(49);
+        // enough states to have sparse rows too
+        List<char[]> patterns = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            patterns.add(randomString(random, 1 + random.nextInt(8)));
+        }
+        AhoCorasick automaton = AhoCorasick.compile(patterns);
+
+        for (int round = 0; round < 20; round++) {
+            char[] text = randomString(random, 2000);
+            Set<AhoCorasick.Match> expected = new HashSet<>();
+            for (int id = 0; id < patterns.size(); id++) {
+                for (int offset : KMP.search(text, patterns.get(id))) {
+                    expected.add(new AhoCorasick.Match(id, offset));
+                }
+            }
+            List<AhoCorasick.Match> matches = automaton.search(text);
+            Assert.assertEquals(expected.size(), matches.size());
+            Assert.assertEquals(expected, new HashSet<>(matches));
+            for (int i = 1; i < matches.size(); i++) {
+                Assert.assertTrue(end(patterns, matches.get(i - 1)) <= end(patterns, matches.get(i)));
+            }
+        }
+    }
+
+    private static int end(List<char[]> patterns, AhoCorasick.Match match) {
+        return match.getOffset() + patterns.get(match.getPatternId()).length;
+    }
+
+    private static char[] randomString(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(4));
+        }
+        return chars;
+    }
+}
@@ -41,4 +41,22 @@ public class BoyerMooreTest {
 
         Assert.assertEquals(expected, BoyerMoore.search(text.toCharArray(), pattern.toCharArray()));
     }
+
+    @Test
+    public void boyerMoore_5() {
+        String text = "AAAAAAA";
+        String pattern = "AAA";
+        List<Integer> expected = List.of(0, 1, 2, 3, 4);
+
+        Assert.assertEquals(expected, BoyerMoore.search(text.toCharArray(), pattern.toCharArray()));
+    }
+
+    @Test
+    public void boyerMoore_6() {
+        String text = "ACGTACGACGTACGTACGACGTACG";
+        String pattern = "ACGTACG";
+        List<Integer> expected = List.of(0, 7, 11, 18);
+
+        Assert.assertEquals(expected, BoyerMoore.search(text.toCharArray(), pattern.toCharArray()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package ilya.mp.substring;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares compiled Boyer-Moore, Horspool, Sunday and KMP matchers on a DNA-like text
+ * of four letters and on a text of 26 letters, including a periodic pattern.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=ilya.mp.substring.SubstringBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubstringBenchmark {
+    private static final int TEXT_LENGTH = 1 << 20;
+
+    @Param({"4", "26"})
+    private int alphabet;
+
+    @Param({"random", "periodic"})
+    private String kind;
+
+    private char[] text;
+    private SubstringMatcher boyerMoore;
+    private SubstringMatcher horspool;
+    private SubstringMatcher sunday;
+    private SubstringMatcher kmp;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        char[] pattern = new char[16];
+        if ("periodic".equals(kind)) {
+            // text is mostly copies of the pattern, every window matches for a long time
+            pattern = "AAAAAAAAAAAAAAAB".toCharArray();
+            text = new char[TEXT_LENGTH];
+            for (int i = 0; i < TEXT_LENGTH; i++) {
+                text[i] = random.nextInt(64) == 0 ? (char) ('A' + random.nextInt(alphabet)) : 'A';
+            }
+        } else {
+            text = new char[TEXT_LENGTH];
+            for (int i = 0; i < TEXT_LENGTH; i++) {
+                text[i] = (char) ('A' + random.nextInt(alphabet));
+            }
+            System.arraycopy(text, TEXT_LENGTH / 2, pattern, 0, pattern.length);
+        }
+        boyerMoore = BoyerMoore.compile(pattern);
+        horspool = Horspool.compile(pattern);
+        sunday = Sunday.compile(pattern);
+        kmp = KMP.compile(pattern);
+    }
+
+    @Benchmark
+    public List<Integer> boyerMoore() {
+        return boyerMoore.search(text);
+    }
+
+    @Benchmark
+    public List<Integer> horspool() {
+        return horspool.search(text);
+    }
+
+    @Benchmark
+    public List<Integer> sunday() {
+        return sunday.search(text);
+    }
+
+    @Benchmark
+    public List<Integer> kmp() {
+        return kmp.search(text);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SubstringBenchmark.class.getSimpleName()).build()).run();
+    }
+}
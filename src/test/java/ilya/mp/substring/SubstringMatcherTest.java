@@ -0,0 +1,164 @@
+package ilya.mp.substring;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+public class SubstringMatcherTest {
+    private static final List<Function<char[], SubstringMatcher>> COMPILERS =
+        List.of(BoyerMoore::compile, FA::compile, KMP::compile, RabinKarp::compile, Horspool::compile, Sunday::compile);
+
+    @Test
+    public void reuseCompiledPatternTest() {
+        for (Function<char[], SubstringMatcher> compiler : COMPILERS) {
+            char[] pattern = "ABA".toCharArray();
+            SubstringMatcher matcher = compiler.apply(pattern);
+            // the matcher keeps its own copy of the pattern
+            pattern[0] = 'X';
+
+            Assert.assertEquals(List.of(0, 2), matcher.search("ABABA".toCharArray()));
+            Assert.assertEquals(List.of(), matcher.search("AB".toCharArray()));
+            Assert.assertEquals(List.of(3), matcher.search("XXXABAXX".toCharArray()));
+        }
+    }
+
+    @Test
+    public void periodicPatternsTest() {
+        Random random = new Random(50);
+        for (int round = 0; round < 100; round++) {
+            // texts made of copies of a short block with rare changes
+            char[] block = randomString(random, 1 + random.nextInt(3));
+            char[] pattern = repeat(block, 1 + random.nextInt(5), random.nextInt(3));
+            char[] text = repeat(block, 100, random.nextInt(300));
+            if (random.nextBoolean()) {
+                text[random.nextInt(text.length)] = 'C';
+            }
+            List<Integer> expected = naiveSearch(text, pattern);
+            for (Function<char[], SubstringMatcher> compiler : List.of(
+                (Function<char[], SubstringMatcher>) BoyerMoore::compile, Horspool::compile, Sunday::compile)) {
+                Assert.assertEquals(expected, compiler.apply(pattern).search(text));
+            }
+        }
+    }
+
+    @Test
+    public void charactersSharingBucketTest() {
+        // '\u0141' and 'A' have the same low byte
+        char[] text = "xA\u0141A\u0141\u0141A".toCharArray();
+        char[] pattern = "\u0141A".toCharArray();
+        for (Function<char[], SubstringMatcher> compiler : List.of(
+            (Function<char[], SubstringMatcher>) BoyerMoore::compile, Horspool::compile, Sunday::compile,
+            FA::compile)) {
+            Assert.assertEquals(List.of(2, 5), compiler.apply(pattern).search(text));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyPatternTest() {
+        KMP.compile(new char[0]);
+    }
+
+    @Test
+    public void randomTextsTest() {
+        Random random = new Random(48);
+        for (int round = 0; round < 200; round++) {
+            char[] pattern = randomString(random, 1 + random.nextInt(6));
+            char[] text = randomString(random, random.nextInt(200));
+            List<Integer> expected = naiveSearch(text, pattern);
+            for (Function<char[], SubstringMatcher> compiler : COMPILERS) {
+                Assert.assertEquals(expected, compiler.apply(pattern).search(text));
+            }
+        }
+    }
+
+    @Test
+    public void randomWideTextsTest() {
+        Random random = new Random(4848);
+        // Latin-1 and wider characters, some of them with the same low byte
+        char[] chars = {'A', 'B', '\u00E9', '\u0141', '\u0441', '\u4E2D', '\uFFFF'};
+        for (int round = 0; round < 200; round++) {
+            char[] pattern = randomString(random, chars, 1 + random.nextInt(6));
+            char[] text = randomString(random, chars, random.nextInt(200));
+            List<Integer> expected = naiveSearch(text, pattern);
+            for (Function<char[], SubstringMatcher> compiler : COMPILERS) {
+                Assert.assertEquals(expected, compiler.apply(pattern).search(text));
+            }
+        }
+    }
+
+    @Test
+    public void concurrentSearchTest() throws Exception {
+        Random random = new Random(480);
+        List<SubstringMatcher> matchers = new ArrayList<>();
+        char[] pattern = "ABAB".toCharArray();
+        for (Function<char[], SubstringMatcher> compiler : COMPILERS) {
+            matchers.add(compiler.apply(pattern));
+        }
+        List<char[]> texts = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            texts.add(randomString(random, 2000));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (char[] text : texts) {
+            futures.add(executor.submit(() -> {
+                List<Integer> expected = naiveSearch(text, pattern);
+                for (SubstringMatcher matcher : matchers) {
+                    Assert.assertEquals(expected, matcher.search(text));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+
+    private static char[] randomString(Random random, char[] chars, int length) {
+        char[] result = new char[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = chars[random.nextInt(chars.length)];
+        }
+        return result;
+    }
+
+    private static char[] randomString(Random random, int length) {
+        // small alphabet gives many overlapping matches
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('A' + random.nextInt(3));
+        }
+        return chars;
+    }
+
+    private static char[] repeat(char[] block, int times, int tail) {
+        char[] chars = new char[block.length * times + Math.min(tail, block.length)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = block[i % block.length];
+        }
+        return chars;
+    }
+
+    private static List<Integer> naiveSearch(char[] text, char[] pattern) {
+        List<Integer> idxes = new ArrayList<>();
+        for (int i = 0; i + pattern.length <= text.length; i++) {
+            int j = 0;
+            while (j < pattern.length && text[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                idxes.add(i);
+            }
+        }
+        return idxes;
+    }
+}
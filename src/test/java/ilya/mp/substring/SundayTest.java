@@ -0,0 +1,62 @@
+package ilya.mp.substring;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class SundayTest {
+
+    @Test
+    public void sunday_1() {
+        String text = "THIS IS A TEST TEXT";
+        String pattern = "TEST";
+        List<Integer> expected = List.of(10);
+
+        Assert.assertEquals(expected, Sunday.search(text.toCharArray(), pattern.toCharArray()));
+    }
+
+    @Test
+    public void sunday_2() {
+        String text = "TEST";
+        String pattern = "TEST";
+        List<Integer> expected = List.of(0);
+
+        Assert.assertEquals(expected, Sunday.search(text.toCharArray(), pattern.toCharArray()));
+    }
+
+    @Test
+    public void sunday_3() {
+        String text = "";
+        String pattern = "TEST";
+
+        Assert.assertTrue(Sunday.search(text.toCharArray(), pattern.toCharArray()).isEmpty());
+    }
+
+    @Test
+    public void sunday_4() {
+        String text = "AABAACAADAABAABA";
+        String pattern = "AABA";
+        List<Integer> expected = List.of(0, 9, 12);
+
+        Assert.assertEquals(expected, Sunday.search(text.toCharArray(), pattern.toCharArray()));
+    }
+
+    @Test
+    public void sunday_5() {
+        String text = "AAAAAAA";
+        String pattern = "AAA";
+        List<Integer> expected = List.of(0, 1, 2, 3, 4);
+
+        Assert.assertEquals(expected, Sunday.search(text.toCharArray(), pattern.toCharArray()));
+    }
+
+    @Test
+    public void sunday_6() {
+        String text = "ACGTACGACGTACGTACGACGTACG";
+        String pattern = "ACGTACG";
+        List<Integer> expected = List.of(0, 7, 11, 18);
+
+        Assert.assertEquals(expected, Sunday.search(text.toCharArray(), pattern.toCharArray()));
+    }
+}